@@ -0,0 +1,368 @@
+package com.projectinventorymanagement;
+
+import com.projectinventorymanagement.api.InventoryApiServer;
+import com.projectinventorymanagement.database.*;
+import com.projectinventorymanagement.models.User;
+import com.projectinventorymanagement.utils.UnitOfWorkJournal;
+import com.projectinventorymanagement.utils.WriteBehindFlusher;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command-line mode for scripted jobs, started with "--headless". Works on the
+ * database classes directly and never touches JavaFX.
+ *
+ * Usage: --headless --user NAME COMMAND [ARGS]
+ * The password is read from the INVENTORY_PASSWORD environment variable, or
+ * else from the console (or the first line of standard input).
+ *
+ * The password check (bcrypt, deliberately slow) runs while the tables the
+ * command needs are loading, and the command only starts once it succeeded.
+ * Like the HTTP API, every command needs a user of type Admin or Staff.
+ * Exit codes: 0 done, 1 failed or found problems, 2 usage, 3 not authenticated,
+ * 4 user type not permitted.
+ */
+public final class HeadlessCli {
+    private static final String USAGE = """
+            Usage: --headless --user NAME COMMAND [ARGS]
+              import FILE [--batch N] [--rejects FILE] [--threads N]
+                                                        Import a transaction manifest, with --threads
+                                                        through the staged pipeline
+              export TABLE FILE [--from DATE] [--to DATE] Write ppe, hospital, distribution, supplier or
+                                                        transactions as CSV
+              reconcile                                 Check hospital and stock figures against the transactions
+              replay [--repair] [--threads N]           Derive stock, hospital and supplier figures from the
+                                                        transactions and report (or repair) divergences
+              compact                                   Rewrite every table file and discard the logs
+              stats                                     Load every table and show its size and load time
+              serve [--port N]                          Run the HTTP API on 127.0.0.1 until stopped""";
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final List<String> EXPORTABLE = List.of("ppe", "hospital", "distribution", "supplier", "transactions");
+    private static final Map<String, Integer> NUMERIC_OPTIONS = Map.of("--batch", Integer.MAX_VALUE,
+            "--threads", Integer.MAX_VALUE, "--port", 65535); // <- Option -> largest value, all start at 1
+
+    private final DatabaseContext databases = DatabaseContext.get();
+
+    private HeadlessCli() {
+    }
+
+    /**
+     * Runs a command and returns the exit code.
+     * @param args The arguments after "--headless".
+     */
+    public static int run(String[] args) {
+        List<String> rest = new ArrayList<>(Arrays.asList(args));
+        String username = option(rest, "--user");
+        if (username == null || rest.isEmpty()) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        String invalid = invalidNumber(rest);
+        if (invalid != null) {
+            System.err.println(invalid);
+            System.err.println(USAGE);
+            return 2;
+        }
+        HeadlessCli cli = new HeadlessCli();
+        CompletableFuture<UserDatabase> users = cli.databases.users();
+        String command = rest.remove(0);
+        CompletableFuture<?> tables = cli.preload(command);
+        if (tables == null) {
+            System.err.println("Unknown command: " + command);
+            System.err.println(USAGE);
+            return 2;
+        }
+        String password = readPassword();
+        User user = password == null ? null : users.join().authenticate(username, password);
+        if (user == null) {
+            System.err.println("Invalid username or password.");
+            return 3;
+        }
+        if (!user.canManageInventory()) {
+            System.err.println("User type " + user.getUserType() + " may not run " + command + ".");
+            return 4;
+        }
+        try {
+            tables.join();
+            int code = switch (command) {
+                case "import" -> cli.importManifest(rest);
+                case "export" -> cli.export(rest);
+                case "reconcile" -> cli.reconcile();
+                case "replay" -> cli.replay(rest);
+                case "compact" -> cli.compact();
+                case "serve" -> cli.serve(rest);
+                default -> cli.stats();
+            };
+            WriteBehindFlusher.flushAll(); // <- Everything is on disk before the JVM exits
+            return code;
+        } catch (RuntimeException | IOException e) {
+            System.err.println("Error running " + command + ": " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    // Starts loading the tables a command uses, or returns null for an unknown command
+    private CompletableFuture<?> preload(String command) {
+        return switch (command) {
+            case "import", "reconcile", "replay", "compact", "stats", "serve" -> CompletableFuture.allOf(databases.transactions(),
+                    databases.items(), databases.hospitals(), databases.suppliers());
+            case "export" -> CompletableFuture.completedFuture(null); // <- Loads the one table it writes
+            default -> null;
+        };
+    }
+
+    private int importManifest(List<String> args) throws IOException {
+        String batch = option(args, "--batch");
+        String rejects = option(args, "--rejects");
+        String threads = option(args, "--threads");
+        if (args.size() != 1) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        File input = new File(args.get(0));
+        File rejectsFile = new File(rejects != null ? rejects : args.get(0) + ".rejected.csv");
+        TransactionImporter importer = new TransactionImporter(databases.transactions().join(),
+                databases.items().join(), databases.hospitals().join(), databases.suppliers().join(),
+                batch == null ? TransactionImporter.DEFAULT_BATCH_SIZE : Integer.parseInt(batch));
+        TransactionImporter.Report report;
+        if (threads != null) {
+            int count = Integer.parseInt(threads); // <- Validate threads and apply partitions alike
+            IngestionPipeline.Report pipelined = new IngestionPipeline(importer, count, count,
+                    IngestionPipeline.DEFAULT_QUEUE_CAPACITY).importFile(input, rejectsFile);
+            System.out.println(pipelined);
+            report = pipelined.totals();
+        } else {
+            report = importer.importFile(input, rejectsFile);
+            System.out.println(report);
+        }
+        if (report.rejected() > 0) {
+            System.out.println("Rejected lines written to: " + rejectsFile.getPath());
+        }
+        return 0;
+    }
+
+    private int export(List<String> args) throws IOException {
+        String from = option(args, "--from");
+        String to = option(args, "--to");
+        if (args.size() != 2 || !EXPORTABLE.contains(args.get(0))) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        String table = args.get(0);
+        DatabaseBase database = switch (table) {
+            case "ppe" -> databases.items().join();
+            case "hospital" -> databases.hospitals().join();
+            case "distribution" -> databases.hospitals().join().getDistribution();
+            case "supplier" -> databases.suppliers().join();
+            default -> databases.transactions().join();
+        };
+        Map<Integer, ArrayList<String>> entries = database.getEntries();
+        List<ArrayList<String>> rows;
+        if ((from != null || to != null) && database instanceof TransactionDatabase transactions) {
+            try {
+                rows = new ArrayList<>();
+                rows.add(entries.get(0));
+                rows.addAll(transactions.rangeQuery(
+                        from == null ? LocalDate.MIN.atStartOfDay() : LocalDate.parse(from).atStartOfDay(),
+                        to == null ? LocalDate.MAX.atStartOfDay() : LocalDate.parse(to).plusDays(1).atStartOfDay()));
+            } catch (DateTimeParseException e) {
+                System.err.println("Dates are written as yyyy-MM-dd: " + e.getParsedString());
+                return 2;
+            }
+        } else {
+            rows = new ArrayList<>(new TreeMap<>(entries).values()); // <- In row order, header first
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args.get(1)),
+                StandardCharsets.UTF_8))) {
+            for (ArrayList<String> row : rows) {
+                writer.write(String.join(",", row));
+                writer.write("\n");
+            }
+        }
+        System.out.println("Exported " + (rows.size() - 1) + " rows of " + table + " to: " + args.get(1));
+        return 0;
+    }
+
+    // Reports every figure that does not add up; returns 1 if there is any
+    private int reconcile() {
+        int problems = 0;
+        HospitalDatabase hospitalDatabase = databases.hospitals().join();
+        Map<Integer, ArrayList<String>> hospitals = hospitalDatabase.getEntries();
+        Map<Integer, ArrayList<String>> transactions = databases.transactions().join().getEntries();
+        ItemDatabase items = databases.items().join();
+
+        // Boxes distributed per hospital and item, and duplicate IDs
+        Map<String, Map<String, Integer>> distributed = new HashMap<>(); // <- Hospital -> item -> boxes
+        Set<String> ids = new HashSet<>();
+        for (Map.Entry<Integer, ArrayList<String>> entry : transactions.entrySet()) {
+            ArrayList<String> row = entry.getValue();
+            if (entry.getKey() == 0 || row.size() < 5) {
+                continue;
+            }
+            if (!ids.add(row.get(0))) {
+                System.out.println("Duplicate transaction ID: " + row.get(0));
+                problems++;
+            }
+            if ("Distribute".equals(row.get(3))) {
+                distributed.computeIfAbsent(row.get(2), _ -> new HashMap<>())
+                        .merge(row.get(1), parse(row.get(4)), Integer::sum);
+            }
+        }
+
+        // Each hospital's Total against its per-item counts, and the counts against the transactions
+        for (Map.Entry<Integer, ArrayList<String>> entry : hospitals.entrySet()) {
+            ArrayList<String> row = entry.getValue();
+            if (entry.getKey() == 0 || row.size() < 3) {
+                continue;
+            }
+            Map<String, Long> received = hospitalDatabase.getReceivedItems(row.get(0));
+            Map<String, Integer> logged = distributed.getOrDefault(row.get(0), Map.of());
+            Set<String> itemCodes = new TreeSet<>(received.keySet());
+            itemCodes.addAll(logged.keySet());
+            long sum = 0;
+            for (String itemCode : itemCodes) {
+                long boxes = received.getOrDefault(itemCode, 0L);
+                sum += boxes;
+                if (boxes != logged.getOrDefault(itemCode, 0)) {
+                    System.out.println(row.get(0) + " " + itemCode + ": " + boxes
+                            + " received, transactions distribute " + logged.getOrDefault(itemCode, 0));
+                    problems++;
+                }
+            }
+            if (sum != parse(row.get(2))) {
+                System.out.println(row.get(0) + ": total " + row.get(2) + ", item counts add up to " + sum);
+                problems++;
+            }
+        }
+
+        for (ArrayList<String> row : items.getItems()) {
+            if (items.getItemQuantity(row.get(0)) < 0) {
+                System.out.println(row.get(0) + ": negative stock " + items.getItemQuantity(row.get(0)));
+                problems++;
+            }
+        }
+        System.out.println(problems == 0 ? "Everything reconciles." : problems + " problems found.");
+        return problems == 0 ? 0 : 1;
+    }
+
+    // Returns 1 if the replay found divergences it did not repair
+    private int replay(List<String> args) {
+        boolean repair = args.remove("--repair");
+        String threads = option(args, "--threads");
+        ForkJoinPool pool = threads == null ? ForkJoinPool.commonPool() : new ForkJoinPool(Integer.parseInt(threads));
+        LedgerReplay.Report report = new LedgerReplay(databases.transactions().join(), databases.items().join(),
+                databases.hospitals().join(), databases.suppliers().join(), pool).replay(repair);
+        System.out.println(report);
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+        return report.consistent() || repair ? 0 : 1;
+    }
+
+    private int compact() {
+        for (DatabaseBase database : List.of(databases.transactions().join(), databases.items().join(),
+                databases.hospitals().join(), databases.hospitals().join().getDistribution(),
+                databases.suppliers().join())) {
+            database.saveData(); // <- Checkpoint, written by the flushAll() after the command
+        }
+        WriteBehindFlusher.flushAll();
+        System.out.println("Compacted 5 tables, " + UnitOfWorkJournal.pendingUnits() + " units of work pending.");
+        return 0;
+    }
+
+    private int serve(List<String> args) throws IOException {
+        String port = option(args, "--port");
+        InventoryApiServer server = new InventoryApiServer(databases,
+                port == null ? DEFAULT_PORT : Integer.parseInt(port));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2)));
+        try {
+            Thread.currentThread().join(); // <- Until the process is stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private int stats() {
+        System.out.printf("%-14s %8s %10s %12s%n", "Table", "Rows", "Load (ms)", "Heap (est.)");
+        for (DatabaseContext.TableStats stats : databases.stats()) {
+            System.out.printf("%-14s %8d %10d %9d KB%n", stats.table(), stats.rows() - 1, stats.loadMillis(),
+                    stats.estimatedBytes() / 1024);
+        }
+        return 0;
+    }
+
+    // Removes "--name value" from the arguments and returns the value, or null
+    private static String option(List<String> args, String name) {
+        int at = args.indexOf(name);
+        if (at < 0 || at + 1 >= args.size()) {
+            return null;
+        }
+        args.remove(at);
+        return args.remove(at);
+    }
+
+    // Checks the numeric options before anything loads, so a typo is a usage error
+    // rather than a NumberFormatException later; returns the complaint, or null
+    private static String invalidNumber(List<String> args) {
+        for (Map.Entry<String, Integer> option : NUMERIC_OPTIONS.entrySet()) {
+            int at = args.indexOf(option.getKey());
+            if (at < 0 || at + 1 >= args.size()) {
+                continue;
+            }
+            String value = args.get(at + 1);
+            try {
+                int number = Integer.parseInt(value);
+                if (number >= 1 && number <= option.getValue()) {
+                    continue;
+                }
+            } catch (NumberFormatException e) {
+                // <- Reported below, like a number out of range
+            }
+            return option.getKey() + " takes a whole number from 1 to " + option.getValue() + ": " + value;
+        }
+        return null;
+    }
+
+    private static String readPassword() {
+        String password = System.getenv("INVENTORY_PASSWORD");
+        if (password != null) {
+            return password;
+        }
+        Console console = System.console();
+        if (console != null) {
+            char[] typed = console.readPassword("Password: ");
+            return typed == null ? null : new String(typed);
+        }
+        try {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int parse(String number) {
+        try {
+            return Integer.parseInt(number.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.projectinventorymanagement;
+import com.projectinventorymanagement.database.LedgerReplay;
 import com.projectinventorymanagement.gui.LoginGUI;
 
 import javafx.application.Application;
 
+import java.util.Arrays;
+
 
 // Main initialization of application
 public class Main {
     public static void main(String[] args) {
+        // Scripted jobs run without JavaFX, see HeadlessCli
+        if (args.length > 0 && "--headless".equals(args[0])) {
+            System.exit(HeadlessCli.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        // Checks the counters against the transaction log if asked to, see LedgerReplay
+        LedgerReplay.onStartup();
         // Start the Login GUI
         Application.launch(LoginGUI.class, args);
     }
-}
\ No newline at end of file
+}
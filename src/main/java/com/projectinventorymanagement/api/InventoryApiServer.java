@@ -0,0 +1,277 @@
+package com.projectinventorymanagement.api;
+
+import com.projectinventorymanagement.database.DatabaseContext;
+import com.projectinventorymanagement.database.ItemDatabase;
+import com.projectinventorymanagement.database.TransactionDatabase;
+import com.projectinventorymanagement.database.TransactionProcessor;
+import com.projectinventorymanagement.database.TransactionProcessor.Line;
+import com.projectinventorymanagement.database.TransactionProcessor.Type;
+import com.projectinventorymanagement.models.User;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP API for ward scanners and other internal tools, on the JDK's
+ * built-in server with one virtual thread per request. It works on the
+ * shared tables of DatabaseContext, so the GUI and the API see the same data.
+ * Every endpoint requires HTTP Basic authentication (see UserAuthenticator)
+ * and, like the main menu, a user of type Admin or Staff; any other type gets
+ * 403.
+ *
+ * POST /api/distribute?hospital=HP1  and  POST /api/receive?supplier=SP1
+ *   A basket, either one line as "&item=HC&quantity=5" or a text body with one
+ *   "ITEM,QUANTITY" line per item. Applied all or nothing (TransactionProcessor).
+ *   200 with the new transaction IDs, 409 with the shortages, 400 if invalid.
+ * GET /api/stock[?item=HC]
+ *   The stock of every item, or of one.
+ * GET /api/transactions?from=yyyy-MM-dd[&to=yyyy-MM-dd][&limit=N]
+ *   Transactions dated from..to (inclusive), oldest first, at most limit
+ *   (default 1000, must not be negative).
+ *
+ * Responses are JSON. The server listens on the loopback interface only.
+ */
+public class InventoryApiServer {
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final DatabaseContext databases;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Binds to 127.0.0.1 (port 0 picks a free one) once the tables are loaded.
+     */
+    public InventoryApiServer(DatabaseContext databases, int port) throws IOException {
+        this.databases = databases;
+        UserAuthenticator authenticator = new UserAuthenticator("inventory", databases.users().join());
+        databases.transactionProcessor().join();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(executor);
+        for (HttpContext context : List.of(
+                server.createContext("/api/distribute", exchange -> handle(exchange, "POST", this::distribute)),
+                server.createContext("/api/receive", exchange -> handle(exchange, "POST", this::receive)),
+                server.createContext("/api/stock", exchange -> handle(exchange, "GET", this::stock)),
+                server.createContext("/api/transactions", exchange -> handle(exchange, "GET", this::transactions)))) {
+            context.setAuthenticator(authenticator);
+        }
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Inventory API listening on http://127.0.0.1:" + getPort() + "/api/");
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given seconds for running ones.
+     */
+    public void stop(int seconds) {
+        server.stop(seconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // A response: status code and JSON body
+    private record Response(int status, String json) {
+    }
+
+    private interface Endpoint {
+        Response handle(Map<String, String> query, HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                response = error(405, "Use " + method);
+            } else if (!permitted(exchange)) {
+                response = error(403, "Not permitted for this user type");
+            } else {
+                response = endpoint.handle(query(exchange), exchange);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI());
+            e.printStackTrace();
+            response = error(500, "Internal error");
+        }
+        byte[] body = response.json().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // The authenticator has checked the password; the user type is read per request, so a change applies at once
+    private boolean permitted(HttpExchange exchange) {
+        User user = databases.users().join().getUserByUsername(exchange.getPrincipal().getUsername());
+        return user != null && user.canManageInventory();
+    }
+
+    private Response distribute(Map<String, String> query, HttpExchange exchange) throws IOException {
+        return basket(Type.DISTRIBUTE, query.get("hospital"), query, exchange);
+    }
+
+    private Response receive(Map<String, String> query, HttpExchange exchange) throws IOException {
+        return basket(Type.RECEIVE, query.get("supplier"), query, exchange);
+    }
+
+    private Response basket(Type type, String entityCode, Map<String, String> query, HttpExchange exchange)
+            throws IOException {
+        if (entityCode == null) {
+            return error(400, "Missing " + (type == Type.DISTRIBUTE ? "hospital" : "supplier"));
+        }
+        List<Line> lines = new ArrayList<>();
+        try {
+            if (query.containsKey("item")) {
+                lines.add(new Line(query.get("item"), Integer.parseInt(query.getOrDefault("quantity", ""))));
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+                        StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    String[] parts = line.split(",");
+                    if (parts.length != 2) {
+                        return error(400, "Expected ITEM,QUANTITY: " + line);
+                    }
+                    lines.add(new Line(parts[0].trim(), Integer.parseInt(parts[1].trim())));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return error(400, "Invalid quantity");
+        }
+
+        TransactionProcessor.Result result = databases.transactionProcessor().join().process(type, entityCode, lines);
+        if (result.success()) {
+            return new Response(200, "{\"transactionIds\":" + array(result.transactionIds()) + "}");
+        }
+        if (!result.shortages().isEmpty()) {
+            StringBuilder shortages = new StringBuilder("{");
+            result.shortages().forEach((item, missing) -> shortages.append(shortages.length() > 1 ? "," : "")
+                    .append(string(item)).append(':').append(missing));
+            return new Response(409, "{\"error\":" + string(result.message()) + ",\"shortages\":" + shortages + "}}");
+        }
+        return error(400, result.message());
+    }
+
+    private Response stock(Map<String, String> query, HttpExchange exchange) {
+        ItemDatabase items = databases.items().join();
+        String item = query.get("item");
+        StringBuilder json = new StringBuilder("[");
+        for (ArrayList<String> row : items.getItems()) {
+            if (item != null && !item.equals(row.get(0))) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"item\":").append(string(row.get(0))).append(",\"name\":").append(string(row.get(1)))
+                    .append(",\"quantity\":").append(items.getItemQuantity(row.get(0))).append('}');
+        }
+        if (item != null) {
+            return json.length() == 1 ? error(404, "Unknown item: " + item)
+                    : new Response(200, json.substring(1)); // <- The object itself
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private Response transactions(Map<String, String> query, HttpExchange exchange) {
+        LocalDate from;
+        LocalDate to;
+        int limit;
+        try {
+            from = LocalDate.parse(query.getOrDefault("from", ""));
+            to = query.containsKey("to") ? LocalDate.parse(query.get("to")) : from;
+            limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return error(400, "Expected from=yyyy-MM-dd, optional to=yyyy-MM-dd and limit=N");
+        }
+        if (limit < 0) {
+            return error(400, "limit must not be negative");
+        }
+        TransactionDatabase transactions = databases.transactions().join();
+        List<ArrayList<String>> rows = transactions.rangeQuery(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        StringBuilder json = new StringBuilder("[");
+        for (ArrayList<String> row : rows.subList(0, Math.min(limit, rows.size()))) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(string(row.get(0))).append(",\"item\":").append(string(row.get(1)))
+                    .append(",\"code\":").append(string(row.get(2))).append(",\"type\":").append(string(row.get(3)))
+                    .append(",\"quantity\":").append(string(row.get(4)))
+                    .append(",\"dateTime\":").append(string(row.size() > 5 ? row.get(5) : "")).append('}');
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + string(message) + "}");
+    }
+
+    private static String array(List<String> values) {
+        StringBuilder json = new StringBuilder("[");
+        for (String value : values) {
+            json.append(json.length() > 1 ? "," : "").append(string(value));
+        }
+        return json.append(']').toString();
+    }
+
+    // A JSON string literal
+    private static String string(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : (value == null ? "" : value).toCharArray()) {
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
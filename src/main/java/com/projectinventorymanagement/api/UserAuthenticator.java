@@ -0,0 +1,68 @@
+package com.projectinventorymanagement.api;
+
+import com.projectinventorymanagement.database.UserDatabase;
+import com.projectinventorymanagement.models.User;
+import com.sun.net.httpserver.BasicAuthenticator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HTTP Basic authentication against UserDatabase.
+ *
+ * A bcrypt check takes hundreds of milliseconds on purpose, far longer than
+ * the request itself, so once a username and password passed it, a salted
+ * SHA-256 of the password is remembered for CACHE_MILLIS and later requests
+ * compare against that. An entry is dropped as soon as the user's stored
+ * hash changes or the user is deactivated. The salt is random per process,
+ * so the cache is worthless outside it.
+ */
+public class UserAuthenticator extends BasicAuthenticator {
+    private static final long CACHE_MILLIS = Long.getLong("inventory.api.credentialCacheMs", 5 * 60 * 1000);
+
+    private record Verified(byte[] digest, String storedHash, long expiresAt) {
+    }
+
+    private final UserDatabase userDatabase;
+    private final byte[] salt = new byte[16];
+    private final ConcurrentHashMap<String, Verified> verified = new ConcurrentHashMap<>();
+
+    public UserAuthenticator(String realm, UserDatabase userDatabase) {
+        super(realm, StandardCharsets.UTF_8);
+        this.userDatabase = userDatabase;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Override
+    public boolean checkCredentials(String username, String password) {
+        User user = userDatabase.getUserByUsername(username);
+        if (user == null || !user.isActive()) {
+            verified.remove(username);
+            return false;
+        }
+        byte[] digest = digest(password);
+        Verified cached = verified.get(username);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()
+                && cached.storedHash().equals(user.getPassword())) {
+            return MessageDigest.isEqual(cached.digest(), digest); // <- Constant time
+        }
+        if (!user.checkPassword(password)) {
+            return false;
+        }
+        verified.put(username, new Verified(digest, user.getPassword(), System.currentTimeMillis() + CACHE_MILLIS));
+        return true;
+    }
+
+    private byte[] digest(String password) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(salt);
+            return sha.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // <- Every JDK has it
+        }
+    }
+}
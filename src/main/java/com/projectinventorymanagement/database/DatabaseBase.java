@@ -1,80 +1,958 @@
 package com.projectinventorymanagement.database;
 
-import com.projectinventorymanagement.utils.FileHandler2;
+import com.projectinventorymanagement.utils.BackgroundIO;
+import com.projectinventorymanagement.utils.DataSource;
+import com.projectinventorymanagement.utils.DataSources;
+import com.projectinventorymanagement.utils.TailState;
+import com.projectinventorymanagement.utils.UnitOfWorkJournal;
+import com.projectinventorymanagement.utils.WriteAheadLog;
+import com.projectinventorymanagement.utils.WriteBehindFlusher;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
-public abstract class DatabaseBase {
-    public HashMap<Integer, ArrayList<String>> boundList;
+/**
+ * In-memory table backed by a DataSource and a row log.
+ *
+ * The rows are private and guarded by a StampedLock: lookups run as optimistic
+ * reads that are validated afterwards and retried under the read lock only if a
+ * writer got in between, while every change takes the write lock. Stored rows
+ * are never modified in place, so readers can share them: getEntries() returns
+ * an immutable snapshot, and getEntry()/findEntry() return copies to edit and
+ * hand back through updateEntry() or modifyEntry().
+ *
+ * Loading, reloading and checkpointing touch the disk; the GUI reaches them
+ * through open(), loadDataAsync(), saveDataAsync() and reloadTailAsync(), which
+ * run on BackgroundIO's virtual threads. Everything else works on memory.
+ *
+ * Changes made inside UnitOfWorkJournal.run() go to the journal before they
+ * reach this table's log, and units the journal has but the log lacks after a
+ * crash are replayed when the table is loaded.
+ *
+ * Every row change is also published through changes(), once the lock is
+ * released, so open views can apply it instead of re-reading the table.
+ */
+public abstract class DatabaseBase implements WriteBehindFlusher.Flushable {
+    // Log records are folded into the base file once there are at least this many,
+    // or as many as the base file holds rows, so compaction stays amortised O(1) per write.
+    private static final int MIN_COMPACT_RECORDS = 1000;
+
+    private final StampedLock lock = new StampedLock();
+    private HashMap<Integer, ArrayList<String>> boundList;
+    private volatile Map<Integer, ArrayList<String>> snapshot; // <- Cleared by every write, rebuilt on demand
     private final String fileName;
+    private final DataSource dataSource;
+    private final WriteAheadLog log;
+    private boolean checkpointPending;
+    private int baseRows; // <- Rows in the base file as of the last checkpoint
+    private final TailState tailState = new TailState();
+    private long logOffset; // <- Bytes of the log already applied
+    private final List<RowIndex> indexes = new ArrayList<>();
+    private volatile TrigramIndex searchIndex; // <- Built (or loaded) on the first search, dropped when all rows change
+    private final Object searchBuildLock = new Object();
+    private CompletableFuture<Void> searchBuild = CompletableFuture.completedFuture(null); // <- Guarded by searchBuildLock
+    private final HashSet<Long> loggedUnits = new HashSet<>(); // <- Unit markers seen while replaying the log
+    private volatile CompletableFuture<Void> written = CompletableFuture.completedFuture(null); // <- Of the last change
+
+    private static final long PUBLISH_TIMEOUT_MS = 100; // <- How long a slow subscriber may hold a publisher back
+    private volatile SubmissionPublisher<RowChange> changes; // <- Created by the first changes() call
+    private final ConcurrentLinkedQueue<RowChange> unpublished = new ConcurrentLinkedQueue<>(); // <- Added under the write lock
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private long changeSequence; // <- Guarded by the lock
+    private boolean loading; // <- Set while loadLocked() replays, which publishes one RELOAD instead
 
     /**
-     * Constructor loads the boundList from file via FileHandler.
-     * 
+     * Constructor loads the boundList through the backend chosen by DataSources.
+     *
      * @param fileName The base name of the file (without extension) where data is
      *                 stored.
      */
     public DatabaseBase(String fileName) {
+        this(fileName, DataSources.forTable(fileName));
+    }
+
+    /**
+     * Constructor loads the boundList from the given backend and replays any
+     * operations recorded in the table's log since the last checkpoint.
+     *
+     * @param fileName   The table name (file name without extension).
+     * @param dataSource The backend that stores the table.
+     */
+    protected DatabaseBase(String fileName, DataSource dataSource) {
         this.fileName = fileName;
-        // Load boundList from file. FileHansdler.loadFromFile returns a
-        // HashMap<Integer, ArrayList<String>>
-        this.boundList = FileHandler2.loadFromFile(fileName);
+        this.dataSource = dataSource;
+        this.log = new WriteAheadLog(fileName);
+        // Make changes still buffered by other instances visible before reading
+        WriteBehindFlusher.flushAll();
+        loadData();
+    }
+
+    /**
+     * Constructs (and so loads) a table on a background thread.
+     *
+     * @param constructor Typically a constructor reference, e.g. ItemDatabase::new.
+     */
+    public static <T extends DatabaseBase> CompletableFuture<T> open(Supplier<T> constructor) {
+        return BackgroundIO.supply(constructor);
     }
 
     /**
-     * Returns the in-memory data.
+     * Returns a consistent, unmodifiable snapshot of all rows keyed by row index.
+     * The rows in it must not be modified; use getEntry() for an editable copy.
      */
-    public HashMap<Integer, ArrayList<String>> getEntries() {
-        return boundList;
+    public Map<Integer, ArrayList<String>> getEntries() {
+        renderPendingRows();
+        Map<Integer, ArrayList<String>> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long stamp = lock.readLock();
+        try {
+            current = Collections.unmodifiableMap(new HashMap<>(boundList));
+            snapshot = current;
+            return current;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns a copy of the row at the given index, or null if there is none.
+     */
+    public ArrayList<String> getEntry(int index) {
+        renderPendingRows();
+        ArrayList<String> row = read(() -> boundList.get(index));
+        return row == null ? null : new ArrayList<>(row);
+    }
+
+    /**
+     * Returns the number of rows, including the header row.
+     */
+    public int size() {
+        return read(() -> boundList.size());
+    }
+
+    /**
+     * Returns the table's file name without extension, e.g. "ppe".
+     */
+    public String getTableName() {
+        return fileName;
+    }
+
+    /**
+     * Estimates the heap taken by the rows: the map entries, the row lists and
+     * their strings (Latin-1), not the indexes. For DatabaseContext's statistics.
+     */
+    public long estimateRowBytes() {
+        renderPendingRows();
+        long stamp = lock.readLock();
+        try {
+            long bytes = 0;
+            for (ArrayList<String> row : boundList.values()) {
+                bytes += 32 + 16 + 40; // <- Map node, Integer key, ArrayList with its array
+                for (String cell : row) {
+                    bytes += 4 + 24 + 16 + (cell == null ? 0 : cell.length()); // <- Reference, String, byte[]
+                }
+            }
+            return bytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
      * Adds or updates an entry at the specified index.
-     * 
+     *
      * @param index The row index where the entry should be added.
      * @param entry The ArrayList<String> representing the row data.
      */
     public void addEntry(int index, ArrayList<String> entry) {
-        boundList.put(index, entry);
-        saveData();
+        ArrayList<String> row = new ArrayList<>(entry);
+        long stamp = lock.writeLock();
+        try {
+            store(WriteAheadLog.Op.PUT, index, row);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        markDirty();
+    }
+
+    /**
+     * Appends rows after the last one, all under one lock, so concurrent
+     * appends cannot pick the same indexes.
+     *
+     * @return The row indexes the rows were stored at.
+     */
+    public int[] appendEntries(List<ArrayList<String>> entries) {
+        int[] stored = new int[entries.size()];
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                stored[i] = nextFreeIndex();
+                store(WriteAheadLog.Op.PUT, stored[i], new ArrayList<>(entries.get(i)));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        markDirty();
+        return stored;
+    }
+
+    /**
+     * Changes the row the lookup finds, or else stores the given row, all under
+     * one lock, so two callers cannot both add a row for the same key.
+     *
+     * @param locate Returns the index of the row to change, or -1; runs under
+     *               the write lock, so it may only use the indexes.
+     * @param merge  Receives a copy of the found row and returns the new row,
+     *               or null to leave it as it is.
+     * @param index  Where to store the row if none is found, or -1 for after
+     *               the last row.
+     * @return The index of the row changed or stored.
+     */
+    protected int mergeEntry(IntSupplier locate, UnaryOperator<ArrayList<String>> merge, int index,
+            ArrayList<String> row) {
+        int stored;
+        long stamp = lock.writeLock();
+        try {
+            stored = locate.getAsInt();
+            if (stored < 0 || !boundList.containsKey(stored)) {
+                stored = index < 0 ? nextFreeIndex() : index;
+                store(WriteAheadLog.Op.PUT, stored, new ArrayList<>(row));
+            } else if (!modifyLocked(stored, merge)) {
+                return stored; // <- Nothing changed
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+            publishChanges();
+        }
+        markDirty();
+        return stored;
+    }
+
+    // The first index after the rows, skipping rows beyond a hole; needs the write lock
+    private int nextFreeIndex() {
+        int next = boundList.size();
+        while (boundList.containsKey(next)) {
+            next++; // <- Not dense until the next checkpoint
+        }
+        return next;
     }
 
     /**
      * Updates an existing entry at the specified index.
-     * 
+     *
      * @param index The row index to update.
      * @param entry The new data for that row.
      */
     public void updateEntry(int index, ArrayList<String> entry) {
-        if (boundList.containsKey(index)) {
-            boundList.put(index, entry);
-            saveData();
+        ArrayList<String> row = new ArrayList<>(entry);
+        long stamp = lock.writeLock();
+        try {
+            if (!boundList.containsKey(index)) {
+                return;
+            }
+            store(WriteAheadLog.Op.UPDATE, index, row);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        markDirty();
+    }
+
+    /**
+     * Atomically reads, changes and writes back one row.
+     *
+     * @param index  The row index to change.
+     * @param change Receives a copy of the row and returns the new row, or null
+     *               to leave the row as it is.
+     * @return Whether the row existed and was changed.
+     */
+    public boolean modifyEntry(int index, UnaryOperator<ArrayList<String>> change) {
+        long stamp = lock.writeLock();
+        try {
+            if (!modifyLocked(index, change)) {
+                return false;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        markDirty();
+        return true;
+    }
+
+    /**
+     * Like {@link #modifyEntry(int, UnaryOperator)}, for the first row whose key
+     * in the given index matches. The lookup and the change happen under one lock.
+     */
+    protected boolean modifyEntry(HashIndex index, UnaryOperator<ArrayList<String>> change, String... values) {
+        if (!renderEntry(index, change, values)) {
+            return false;
+        }
+        markDirty();
+        return true;
+    }
+
+    /**
+     * Like {@link #modifyEntry(HashIndex, UnaryOperator, String...)}, for a row
+     * found by any lookup over the subclass's own indexes (see addIndex), which
+     * returns the row index or -1. The lookup runs under the write lock.
+     */
+    protected boolean modifyEntry(IntSupplier locate, UnaryOperator<ArrayList<String>> change) {
+        boolean changed;
+        long stamp = lock.writeLock();
+        try {
+            int row = locate.getAsInt();
+            changed = row >= 0 && modifyLocked(row, change);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        if (changed) {
+            markDirty();
         }
+        return changed;
+    }
+
+    /**
+     * Like {@link #modifyEntry(HashIndex, UnaryOperator, String...)}, but leaves
+     * scheduling the flush to the caller. For rows that render state the subclass
+     * keeps elsewhere, from {@link #renderPendingRows()}.
+     */
+    protected boolean renderEntry(HashIndex index, UnaryOperator<ArrayList<String>> change, String... values) {
+        boolean changed;
+        long stamp = lock.writeLock();
+        try {
+            int row = index.get(values);
+            changed = row >= 0 && modifyLocked(row, change);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        return changed;
+    }
+
+    /**
+     * Called without the lock before rows are handed out, searched, reloaded or
+     * flushed. Subclasses that keep part of a row outside it (see StockLedger)
+     * write the current values into the rows here; the default does nothing.
+     */
+    protected void renderPendingRows() {
     }
 
     /**
      * Deletes an entry from the in-memory data.
-     * 
+     *
      * @param index The row index to delete.
      */
     public void deleteEntry(int index) {
-        boundList.remove(index);
-        saveData();
+        long stamp = lock.writeLock();
+        try {
+            ArrayList<String> removed = boundList.remove(index);
+            if (removed == null) {
+                return;
+            }
+            snapshot = null;
+            indexRow(index, null);
+            appendToLog(WriteAheadLog.Op.DELETE, index, null);
+            checkpointPending = true; // <- The hole is only closed by a checkpoint (see compact())
+            recordChange(RowChange.Kind.DELETE, index, removed, null);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        markDirty();
     }
 
     /**
-     * Persists the current boundList data to the file using FileHandler.
+     * Replaces every row at once, e.g. with the contents of an edited table view,
+     * and schedules the result to be written out as a checkpoint.
+     *
+     * @param data The new rows keyed by row index; copied, so the caller keeps ownership.
+     */
+    public void replaceAll(Map<Integer, ArrayList<String>> data) {
+        HashMap<Integer, ArrayList<String>> rows = new HashMap<>();
+        for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+            rows.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        long stamp = lock.writeLock();
+        try {
+            boundList = rows;
+            snapshot = null;
+            rebuildIndexes();
+            checkpointPending = true;
+            recordChange(RowChange.Kind.RELOAD, -1, null, null);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        markDirty();
+    }
+
+    /**
+     * Returns a future that completes once the changes made to this table so
+     * far are written out as the durability mode requires (see
+     * WriteBehindFlusher), e.g. to confirm a save only once it is on disk.
+     * Never wait for it on the JavaFX thread; hand it to FxAsync instead.
+     */
+    public CompletableFuture<Void> whenWritten() {
+        return written;
+    }
+
+    // Schedules the flush of a change and remembers when it will be done
+    protected void markDirty() {
+        written = WriteBehindFlusher.markDirty(this);
+    }
+
+    /**
+     * Returns the backend that stores this table.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Schedules the current boundList data to be written to the file and the log
+     * to be discarded (checkpoint). The entry methods above only append to the
+     * log. Several calls in a burst are coalesced by the WriteBehindFlusher into
+     * a single write.
      */
     public void saveData() {
-        FileHandler2.saveToFile(fileName, boundList);
+        long stamp = lock.writeLock();
+        try {
+            checkpointPending = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        markDirty();
+    }
+
+    /**
+     * Writes pending changes out. Called by the WriteBehindFlusher.
+     * During a checkpoint the write lock is downgraded once the rows are
+     * renumbered, so readers carry on while the file is written.
+     *
+     * @param fsync Whether the changes must be forced to the storage device.
+     */
+    @Override
+    public void flush(boolean fsync) {
+        BackgroundIO.checkNotFxThread("flush " + fileName);
+        renderPendingRows();
+        while (true) {
+            long stamp = lock.writeLock();
+            try {
+                if (!checkpointPending) {
+                    log.sync(fsync);
+                    if (fsync) {
+                        UnitOfWorkJournal.resolve(fileName, log.takeUnits(false), false);
+                    }
+                    return;
+                }
+                if (!log.isHeld()) {
+                    compact();
+                    stamp = lock.tryConvertToReadLock(stamp); // <- Writers stay out until the log is truncated
+                    writeCheckpoint();
+                    break;
+                }
+            } finally {
+                lock.unlock(stamp);
+                publishChanges(); // <- compact() may have renumbered the rows
+            }
+            // A unit of work has changed rows the journal does not have yet; they must
+            // not reach the base file before it does. Wait outside the lock, which it needs.
+            log.awaitUnheld();
+        }
+        saveSearchIndex();
+    }
+
+    /**
+     * {@link #loadData()} on a background thread.
+     */
+    public CompletableFuture<Void> loadDataAsync() {
+        return BackgroundIO.run(this::loadData);
+    }
+
+    /**
+     * Checkpoints the table on a background thread; the future completes once
+     * the file is written and forced to disk.
+     */
+    public CompletableFuture<Void> saveDataAsync() {
+        return BackgroundIO.run(() -> {
+            saveData();
+            flush(true);
+        });
     }
 
     public void loadData() {
-        this.boundList = FileHandler2.loadFromFile(fileName);
+        renderPendingRows();
+        boolean recovered;
+        long stamp = lock.writeLock();
+        try {
+            recovered = loadLocked();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        publishChanges();
+        if (recovered) {
+            markDirty(); // <- Write the recovered units into the table
+        }
+    }
+
+    /**
+     * Holds this table's log for the unit of work running on this thread, if
+     * any, from now on. For changes the table records later on behalf of the
+     * unit, like stock rendered into rows.
+     */
+    public void joinUnitOfWork() {
+        UnitOfWorkJournal.join(log);
+    }
+
+    /**
+     * Brings the in-memory data up to date by reading only what was appended to
+     * the base file and the log since the last read. Falls back to a full
+     * {@link #loadData()} when the file was truncated or rewritten.
+     */
+    protected void reloadTail() {
+        BackgroundIO.checkNotFxThread("reload " + fileName);
+        long stamp = lock.writeLock();
+        try {
+            if (checkpointPending && !log.isHeld()) {
+                compact();
+                writeCheckpoint();
+            }
+            int readRows = tailState.getRows();
+            if (!tailState.isValid() || !dataSource.readTail(fileName, tailState, boundList)) {
+                loadLocked();
+                return;
+            }
+            snapshot = null;
+            for (int i = readRows; i < tailState.getRows(); i++) {
+                indexRow(i, boundList.get(i)); // <- Only the appended rows
+                recordChange(RowChange.Kind.INSERT, i, null, boundList.get(i));
+            }
+            long next = log.replayFrom(logOffset, this::applyLogged);
+            if (next < 0) {
+                loadLocked(); // <- Log was truncated by a checkpoint elsewhere
+                return;
+            }
+            logOffset = next;
+        } finally {
+            lock.unlockWrite(stamp);
+            publishChanges();
+        }
+    }
+
+    /**
+     * {@link #reloadTail()} on a background thread.
+     */
+    protected CompletableFuture<Void> reloadTailAsync() {
+        return BackgroundIO.run(this::reloadTail);
+    }
+
+    /**
+     * Returns the feed of this table's row changes. Subscribers get every
+     * change made after they subscribed, oldest first, with backpressure: a
+     * subscriber that does not request more holds the publishing thread back
+     * for up to PUBLISH_TIMEOUT_MS per change (not the JavaFX thread), after
+     * which the change is dropped for it and, if it is a RowChangeSubscriber,
+     * it is told to resync.
+     */
+    public Flow.Publisher<RowChange> changes() {
+        SubmissionPublisher<RowChange> current = changes;
+        if (current == null) {
+            synchronized (unpublished) {
+                if (changes == null) {
+                    changes = new SubmissionPublisher<>(BackgroundIO.executor(), Flow.defaultBufferSize());
+                }
+                current = changes;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the sequence number of the last change (see RowChange.sequence()).
+     */
+    public long getChangeSequence() {
+        return read(() -> changeSequence);
+    }
+
+    /**
+     * Declares an index over the given columns and builds it from the current data.
+     * Call from the subclass constructor; the index is kept up to date from then on.
+     *
+     * @param name    Used in diagnostics only.
+     * @param unique  Whether the key is expected to identify a single row.
+     * @param columns The column positions that make up the key.
+     */
+    protected HashIndex createIndex(String name, boolean unique, int... columns) {
+        return addIndex(new HashIndex(name, unique, columns));
+    }
+
+    /**
+     * Registers any other kind of index, builds it and keeps it up to date.
+     */
+    protected <T extends RowIndex> T addIndex(T index) {
+        long stamp = lock.writeLock();
+        try {
+            index.rebuild(boundList);
+            indexes.add(index);
+            return index;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Substring search over all cells, used by the table search boxes. Until
+     * the search index is ready, the JavaFX thread gets a scan of the rows and
+     * the index is built in the background; other threads build it first.
+     * @return The row indexes of the rows with a cell containing the query
+     *         (ignoring case), or null if the query is empty (all rows match).
+     */
+    public BitSet search(String query) {
+        renderPendingRows();
+        if (searchIndex == null) {
+            if (BackgroundIO.onFxThread()) {
+                prepareSearchAsync();
+            } else {
+                buildSearchIndex();
+            }
+        }
+        return read(() -> {
+            TrigramIndex index = searchIndex;
+            return index != null ? index.search(query) : TrigramIndex.scan(boundList, query);
+        });
+    }
+
+    /**
+     * Builds (or loads) the search index on a background thread, so the first
+     * search from the UI does not have to.
+     */
+    public CompletableFuture<Void> prepareSearchAsync() {
+        synchronized (searchBuildLock) {
+            if (searchBuild.isDone()) {
+                searchBuild = BackgroundIO.run(() -> search(null));
+            }
+            return searchBuild;
+        }
+    }
+
+    // Builds (or loads) the search index from a copy of the rows without holding
+    // the lock, and installs it if no row changed meanwhile. Rows that keep
+    // changing get it built under the write lock after a few attempts.
+    private void buildSearchIndex() {
+        BackgroundIO.checkNotFxThread("search index of " + fileName);
+        for (int attempt = 1; ; attempt++) {
+            long sequence;
+            HashMap<Integer, ArrayList<String>> rows;
+            long stamp = lock.readLock();
+            try {
+                sequence = changeSequence;
+                rows = new HashMap<>(boundList); // <- Stored rows are replaced, never changed in place
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            TrigramIndex index = new TrigramIndex(fileName);
+            index.rebuild(rows);
+            stamp = lock.writeLock();
+            try {
+                if (searchIndex != null) {
+                    return; // <- Another thread was faster
+                }
+                if (changeSequence != sequence && attempt < 3) {
+                    continue;
+                }
+                if (changeSequence != sequence) {
+                    index.rebuild(boundList);
+                }
+                indexes.add(index);
+                searchIndex = index;
+                break;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        saveSearchIndex();
+    }
+
+    // Writes the search index if it changed. Only encoding it needs the rows held
+    // still, and readers may go on meanwhile; the file is written without the lock.
+    private void saveSearchIndex() {
+        TrigramIndex index;
+        byte[] encoded;
+        long stamp = lock.readLock();
+        try {
+            index = searchIndex;
+            encoded = index == null ? null : index.encode(boundList);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        if (encoded != null) {
+            index.write(encoded);
+        }
+    }
+
+    /**
+     * Returns the first row index whose key matches, or -1.
+     */
+    protected int findRow(HashIndex index, String... values) {
+        return read(() -> index.get(values));
+    }
+
+    /**
+     * Returns a copy of the first row whose key matches, or null.
+     */
+    protected ArrayList<String> findEntry(HashIndex index, String... values) {
+        renderPendingRows();
+        ArrayList<String> row = read(() -> {
+            int found = index.get(values);
+            return found < 0 ? null : boundList.get(found);
+        });
+        return row == null ? null : new ArrayList<>(row);
+    }
+
+    /**
+     * Runs a read over the rows and the indexes, optimistically without locking
+     * first. The reader must not modify anything and may run twice.
+     */
+    protected <T> T readRows(Function<Map<Integer, ArrayList<String>>, T> reader) {
+        renderPendingRows();
+        return read(() -> reader.apply(boundList));
+    }
+
+    // Optimistic read, validated afterwards. If a writer got in between, the
+    // result may be torn (or the read may have thrown), so retry under the read lock.
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // <- Saw a half-applied write, fall through to the locked read
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // The methods below expect the caller to hold the write lock
+
+    private void store(WriteAheadLog.Op op, int index, ArrayList<String> row) {
+        ArrayList<String> old = boundList.put(index, row);
+        snapshot = null;
+        indexRow(index, row);
+        appendToLog(op, index, row);
+        recordChange(old == null ? RowChange.Kind.INSERT : RowChange.Kind.UPDATE, index, old, row);
+    }
+
+    private boolean modifyLocked(int index, UnaryOperator<ArrayList<String>> change) {
+        ArrayList<String> current = boundList.get(index);
+        if (current == null) {
+            return false;
+        }
+        ArrayList<String> changed = change.apply(new ArrayList<>(current));
+        if (changed == null) {
+            return false;
+        }
+        store(WriteAheadLog.Op.UPDATE, index, new ArrayList<>(changed));
+        return true;
+    }
+
+    // Returns whether units of work were recovered from the journal
+    private boolean loadLocked() {
+        BackgroundIO.checkNotFxThread("load " + fileName);
+        if (checkpointPending && !log.isHeld()) {
+            // Don't lose changes that were not written out yet
+            compact();
+            writeCheckpoint();
+        }
+        this.boundList = dataSource.readData(fileName, tailState);
+        this.snapshot = null;
+        this.baseRows = boundList.size();
+        loggedUnits.clear();
+        loading = true;
+        try {
+            this.logOffset = log.replayFrom(0, this::applyLogged);
+        } finally {
+            loading = false;
+        }
+        log.truncateTo(logOffset); // <- Before any append, which would otherwise land after a torn tail
+        if (log.size() > 0) {
+            System.out.println("Replayed " + log.size() + " logged changes for: " + fileName);
+        }
+        // Committed units of work that crashed before reaching this table's log
+        List<UnitOfWorkJournal.Recovered> missing = UnitOfWorkJournal.recover(fileName, loggedUnits);
+        loading = true;
+        try {
+            for (UnitOfWorkJournal.Recovered unit : missing) {
+                for (UnitOfWorkJournal.Record record : unit.records()) {
+                    applyLogged(record.op(), record.index(), record.row());
+                    log.append(record.op(), record.index(), record.row());
+                }
+                log.appendUnitMarker(unit.unit());
+            }
+        } finally {
+            loading = false;
+        }
+        rebuildIndexes();
+        recordChange(RowChange.Kind.RELOAD, -1, null, null);
+        if (!missing.isEmpty()) {
+            System.out.println("Recovered " + missing.size() + " units of work for: " + fileName);
+            checkpointPending = true;
+        }
+        return !missing.isEmpty();
+    }
+
+    // The file is written densely, so renumber in memory to keep later log
+    // records pointing at the same rows after a reload.
+    private void compact() {
+        checkpointPending = false;
+        if (!isDense()) {
+            HashMap<Integer, ArrayList<String>> compacted = new HashMap<>();
+            for (ArrayList<String> row : new TreeMap<>(boundList).values()) {
+                compacted.put(compacted.size(), row);
+            }
+            boundList = compacted;
+            snapshot = null;
+            rebuildIndexes();
+            recordChange(RowChange.Kind.RELOAD, -1, null, null); // <- Row indexes changed
+        }
+    }
+
+    // Needs at least the read lock; writers must be kept out until the log is truncated
+    private void writeCheckpoint() {
+        dataSource.writeData(fileName, boundList);
+        UnitOfWorkJournal.resolve(fileName, log.takeUnits(true), true); // <- Before the markers go with the log
+        log.truncate();
+        baseRows = boundList.size();
+        tailState.invalidate();
+        logOffset = 0;
+    }
+
+    // Whether the rows are numbered 0..size-1 without gaps
+    private boolean isDense() {
+        for (int i = 0; i < boundList.size(); i++) {
+            if (!boundList.containsKey(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyLogged(WriteAheadLog.Op op, int index, String row) {
+        if (op == WriteAheadLog.Op.UNIT) {
+            loggedUnits.add(Long.parseLong(row));
+            return;
+        }
+        ArrayList<String> old = boundList.get(index);
+        switch (op) {
+            case PUT -> boundList.put(index, fromStringFormat(row));
+            case UPDATE -> boundList.computeIfPresent(index, (key, current) -> fromStringFormat(row));
+            case DELETE -> boundList.remove(index);
+        }
+        snapshot = null;
+        ArrayList<String> current = boundList.get(index);
+        indexRow(index, current);
+        if (old != null || current != null) {
+            recordChange(current == null ? RowChange.Kind.DELETE
+                    : old == null ? RowChange.Kind.INSERT : RowChange.Kind.UPDATE, index, old, current);
+        }
+    }
+
+    // Queues a change for publishChanges(); counts it even while nobody listens
+    private void recordChange(RowChange.Kind kind, int index, ArrayList<String> oldRow, ArrayList<String> newRow) {
+        if (loading) {
+            return;
+        }
+        changeSequence++;
+        SubmissionPublisher<RowChange> current = changes;
+        if (current != null && current.hasSubscribers()) {
+            // Stored rows are replaced, never changed in place, so they can be shared
+            unpublished.add(new RowChange(fileName, kind, changeSequence, index,
+                    oldRow == null ? null : Collections.unmodifiableList(oldRow),
+                    newRow == null ? null : Collections.unmodifiableList(newRow)));
+        }
+    }
+
+    // Hands queued changes to the subscribers, without the table lock. One
+    // thread drains at a time, which keeps them in order; the others return.
+    private void publishChanges() {
+        SubmissionPublisher<RowChange> current = changes;
+        if (current == null) {
+            return;
+        }
+        long timeout = BackgroundIO.onFxThread() ? 0 : PUBLISH_TIMEOUT_MS;
+        while (!unpublished.isEmpty() && publishLock.tryLock()) {
+            try {
+                RowChange change;
+                while ((change = unpublished.poll()) != null) {
+                    current.offer(change, timeout, TimeUnit.MILLISECONDS, (subscriber, dropped) -> {
+                        if (subscriber instanceof RowChangeSubscriber view) {
+                            view.lagged();
+                        }
+                        return false;
+                    });
+                }
+            } finally {
+                publishLock.unlock();
+            }
+        }
+    }
+
+    private void indexRow(int index, ArrayList<String> row) {
+        for (RowIndex rowIndex : indexes) {
+            rowIndex.put(index, row);
+        }
+    }
+
+    private void rebuildIndexes() {
+        if (searchIndex != null) {
+            indexes.remove(searchIndex);
+            searchIndex = null; // <- Every row may have changed; the next search rebuilds it off the lock
+        }
+        for (RowIndex index : indexes) {
+            index.rebuild(boundList);
+        }
+    }
+
+    private void appendToLog(WriteAheadLog.Op op, int index, ArrayList<String> entry) {
+        String row = entry == null ? null : toStringFormat(entry);
+        UnitOfWorkJournal.record(fileName, log, op, index, row); // <- Holds the log first when inside a unit
+        log.append(op, index, row);
+        if (log.size() >= Math.max(MIN_COMPACT_RECORDS, baseRows)) {
+            checkpointPending = true;
+        }
     }
 
     protected abstract String toStringFormat(ArrayList<String> entry);
 
     protected abstract ArrayList<String> fromStringFormat(String line);
-}
\ No newline at end of file
+}
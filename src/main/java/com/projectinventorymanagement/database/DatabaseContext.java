@@ -0,0 +1,130 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of the open tables.
+ *
+ * Each table is loaded once, on a background thread, the first time someone
+ * asks for it, and every screen gets the same instance afterwards. So screens
+ * see each other's changes without re-reading the files, and opening a screen
+ * a second time costs nothing. Load time and the estimated heap taken by the
+ * rows are kept per table, see stats().
+ */
+public final class DatabaseContext {
+    private static final DatabaseContext instance = new DatabaseContext();
+
+    /**
+     * What one table costs.
+     *
+     * @param loadMillis     Time the constructor (load, log replay, indexes) took, or -1 while loading.
+     * @param rows           Rows including the header, or -1 while loading.
+     * @param estimatedBytes See DatabaseBase.estimateRowBytes(), or -1 while loading.
+     */
+    public record TableStats(String table, long loadMillis, int rows, long estimatedBytes) {
+    }
+
+    private static final class Table<T extends DatabaseBase> {
+        final CompletableFuture<T> future;
+        volatile long loadNanos = -1;
+
+        Table(Supplier<T> constructor) {
+            this.future = DatabaseBase.open(() -> {
+                long start = System.nanoTime();
+                T table = constructor.get();
+                loadNanos = System.nanoTime() - start;
+                return table;
+            });
+        }
+    }
+
+    private final Map<Class<?>, Table<?>> tables = new ConcurrentHashMap<>();
+    private volatile CompletableFuture<TransactionProcessor> transactionProcessor;
+
+    private DatabaseContext() {
+    }
+
+    public static DatabaseContext get() {
+        return instance;
+    }
+
+    /**
+     * Returns the shared table of the given class, loading it on first use.
+     * A table whose load failed is loaded again on the next call.
+     *
+     * @param constructor Typically a constructor reference, e.g. ItemDatabase::new.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends DatabaseBase> CompletableFuture<T> open(Class<T> type, Supplier<T> constructor) {
+        while (true) {
+            Table<T> table = (Table<T>) tables.computeIfAbsent(type, _ -> new Table<>(constructor));
+            if (!table.future.isCompletedExceptionally()) {
+                return table.future;
+            }
+            tables.remove(type, table); // <- Let the next attempt read the file again
+        }
+    }
+
+    public CompletableFuture<ItemDatabase> items() {
+        return open(ItemDatabase.class, ItemDatabase::new);
+    }
+
+    public CompletableFuture<HospitalDatabase> hospitals() {
+        return open(HospitalDatabase.class, HospitalDatabase::new);
+    }
+
+    public CompletableFuture<SupplierDatabase> suppliers() {
+        return open(SupplierDatabase.class, SupplierDatabase::new);
+    }
+
+    public CompletableFuture<TransactionDatabase> transactions() {
+        return open(TransactionDatabase.class, TransactionDatabase::new);
+    }
+
+    public CompletableFuture<UserDatabase> users() {
+        return open(UserDatabase.class, UserDatabase::new);
+    }
+
+    /**
+     * Returns the processor over the shared transaction, item, hospital and
+     * supplier tables, once all four are loaded.
+     */
+    public CompletableFuture<TransactionProcessor> transactionProcessor() {
+        CompletableFuture<TransactionProcessor> current = transactionProcessor;
+        if (current == null || current.isCompletedExceptionally()) {
+            CompletableFuture<TransactionDatabase> transactions = transactions();
+            CompletableFuture<ItemDatabase> items = items();
+            CompletableFuture<HospitalDatabase> hospitals = hospitals();
+            CompletableFuture<SupplierDatabase> suppliers = suppliers();
+            current = CompletableFuture.allOf(transactions, items, hospitals, suppliers)
+                    .thenApply(_ -> new TransactionProcessor(transactions.join(), items.join(), hospitals.join(),
+                            suppliers.join()));
+            transactionProcessor = current; // <- A race builds two equal processors, which is harmless
+        }
+        return current;
+    }
+
+    /**
+     * Returns the statistics of every table asked for so far.
+     */
+    public List<TableStats> stats() {
+        List<TableStats> stats = new ArrayList<>();
+        for (Map.Entry<Class<?>, Table<?>> entry : tables.entrySet()) {
+            Table<?> table = entry.getValue();
+            DatabaseBase database = table.future.isDone() && !table.future.isCompletedExceptionally()
+                    ? table.future.join() : null;
+            if (database == null) {
+                stats.add(new TableStats(entry.getKey().getSimpleName(), -1, -1, -1));
+                continue;
+            }
+            stats.add(new TableStats(database.getTableName(), table.loadNanos / 1_000_000, database.size(),
+                    database.estimateRowBytes()));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,114 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Boxes each hospital has received of each item, one row per hospital and
+ * item that had a distribution: "Hospital Code,Item Code,Boxes". Kept by
+ * HospitalDatabase next to its own table, so new items need no new columns.
+ */
+public class DistributionDatabase extends DatabaseBase {
+    private static final int BOXES_COLUMN = 2;
+
+    private final DistributionMatrix matrix;
+
+    public DistributionDatabase() {
+        super("distribution"); // Loads data from "data/distribution.txt"
+        if (getEntry(0) == null || getEntry(0).isEmpty()) {
+            addEntry(0, new ArrayList<>(Arrays.asList("Hospital Code", "Item Code", "Boxes")));
+            saveData();
+        }
+        matrix = addIndex(new DistributionMatrix());
+    }
+
+    /**
+     * Adds boxes to a hospital's cells, creating the cells it does not have yet.
+     * Each cell is found or created under one lock (mergeEntry), so two callers
+     * cannot both create the same cell.
+     *
+     * @param quantities Boxes per item code.
+     */
+    public void addBoxes(String hospitalCode, Map<String, Integer> quantities) {
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            mergeEntry(() -> matrix.tableRowOf(hospitalCode, entry.getKey()), row -> {
+                row.set(BOXES_COLUMN, String.valueOf(parseBoxes(row.get(BOXES_COLUMN)) + entry.getValue()));
+                return row;
+            }, -1, cell(hospitalCode, entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Sets the boxes of one cell, creating it if needed.
+     */
+    public void setBoxes(String hospitalCode, String itemCode, long boxes) {
+        UnaryOperator<ArrayList<String>> set = row -> {
+            if (parseBoxes(row.get(BOXES_COLUMN)) == boxes) {
+                return null;
+            }
+            row.set(BOXES_COLUMN, String.valueOf(boxes));
+            return row;
+        };
+        if (boxes == 0) {
+            modifyEntry(() -> matrix.tableRowOf(hospitalCode, itemCode), set); // <- No cell for nothing received
+        } else {
+            mergeEntry(() -> matrix.tableRowOf(hospitalCode, itemCode), set, -1, cell(hospitalCode, itemCode, boxes));
+        }
+    }
+
+    public long getBoxes(String hospitalCode, String itemCode) {
+        return readRows(_ -> matrix.get(hospitalCode, itemCode));
+    }
+
+    /**
+     * Returns the boxes a hospital received per item code.
+     */
+    public Map<String, Long> getReceivedItems(String hospitalCode) {
+        return readRows(_ -> matrix.row(hospitalCode));
+    }
+
+    public long getTotal(String hospitalCode) {
+        return readRows(_ -> matrix.total(hospitalCode));
+    }
+
+    /**
+     * Returns every item code any hospital has received, in the order they
+     * were first distributed.
+     */
+    public List<String> getItemCodes() {
+        return readRows(_ -> matrix.items());
+    }
+
+    /**
+     * Returns the whole matrix in compressed sparse rows.
+     */
+    public DistributionMatrix.Csr snapshot() {
+        return readRows(_ -> matrix.snapshot());
+    }
+
+    private static ArrayList<String> cell(String hospitalCode, String itemCode, long boxes) {
+        return new ArrayList<>(Arrays.asList(hospitalCode, itemCode, String.valueOf(boxes)));
+    }
+
+    private static long parseBoxes(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Treating non-numeric quantity as 0: " + value);
+            return 0;
+        }
+    }
+
+    @Override
+    protected String toStringFormat(ArrayList<String> entry) {
+        return String.join(",", entry);
+    }
+
+    @Override
+    protected ArrayList<String> fromStringFormat(String line) {
+        return new ArrayList<>(Arrays.asList(line.split(",")));
+    }
+}
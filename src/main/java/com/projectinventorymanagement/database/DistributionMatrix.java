@@ -0,0 +1,252 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boxes distributed per hospital and item, as a sparse matrix over the rows
+ * of the distribution table ("Hospital Code,Item Code,Boxes", one row per
+ * hospital and item that ever had a distribution).
+ *
+ * Hospital and item codes get dense ids from two dictionaries. A hospital's
+ * row of the matrix holds only the items it received, in an open-addressed
+ * table from item id to boxes and to the table row holding the cell, so
+ * reading or locating a cell costs O(1) however many items and hospitals
+ * there are. Rows grow by doubling, which keeps updates O(1) where
+ * compressed sparse rows would have to shift every later cell;
+ * snapshot() packs the matrix into compressed sparse rows for views that
+ * show all of it.
+ *
+ * Kept up to date as a RowIndex: put, remove and rebuild run under the
+ * table's write lock, reads go through DatabaseBase.readRows.
+ */
+public class DistributionMatrix implements RowIndex {
+    private static final int HOSPITAL_COLUMN = 0;
+    private static final int ITEM_COLUMN = 1;
+    private static final int BOXES_COLUMN = 2;
+
+    /**
+     * The whole matrix in compressed sparse rows: the cells of hospital h are
+     * columns[rowStart[h]..rowStart[h + 1]) (item ids, ascending) with their
+     * values at the same positions.
+     */
+    public record Csr(List<String> hospitals, List<String> items, int[] rowStart, int[] columns, long[] values) {
+
+        public long get(int hospital, int item) {
+            int at = Arrays.binarySearch(columns, rowStart[hospital], rowStart[hospital + 1], item);
+            return at < 0 ? 0 : values[at];
+        }
+    }
+
+    // One hospital's cells, open-addressed by item id with linear probing
+    private static final class SparseRow {
+        int[] items = new int[4]; // <- Item id + 1, 0 for an empty slot
+        long[] boxes = new long[4];
+        int[] tableRows = new int[4];
+        int size;
+        long total;
+
+        int slotOf(int item) {
+            int mask = items.length - 1;
+            for (int slot = (item * 0x9E3779B1) >>> 16 & mask; ; slot = (slot + 1) & mask) {
+                if (items[slot] == item + 1 || items[slot] == 0) {
+                    return slot;
+                }
+            }
+        }
+
+        void set(int item, long value, int tableRow) {
+            if ((size + 1) * 2 > items.length) {
+                grow();
+            }
+            int slot = slotOf(item);
+            if (items[slot] == 0) {
+                items[slot] = item + 1;
+                size++;
+            }
+            total += value - boxes[slot];
+            boxes[slot] = value;
+            tableRows[slot] = tableRow;
+        }
+
+        void clear(int item) {
+            int slot = slotOf(item);
+            if (items[slot] == 0) {
+                return;
+            }
+            total -= boxes[slot];
+            int[] oldItems = items;
+            long[] oldBoxes = boxes;
+            int[] oldRows = tableRows;
+            oldItems[slot] = 0;
+            rehash(oldItems, oldBoxes, oldRows, items.length); // <- Rare (rows are deleted by hand), keeps probing simple
+        }
+
+        private void grow() {
+            rehash(items, boxes, tableRows, items.length * 2);
+        }
+
+        private void rehash(int[] oldItems, long[] oldBoxes, int[] oldRows, int capacity) {
+            items = new int[capacity];
+            boxes = new long[capacity];
+            tableRows = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldItems.length; i++) {
+                if (oldItems[i] != 0) {
+                    int slot = slotOf(oldItems[i] - 1);
+                    items[slot] = oldItems[i];
+                    boxes[slot] = oldBoxes[i];
+                    tableRows[slot] = oldRows[i];
+                    size++;
+                }
+            }
+        }
+    }
+
+    private final HashMap<String, Integer> hospitalIds = new HashMap<>();
+    private final HashMap<String, Integer> itemIds = new HashMap<>();
+    private final ArrayList<String> hospitalCodes = new ArrayList<>();
+    private final ArrayList<String> itemCodes = new ArrayList<>();
+    private final ArrayList<SparseRow> rows = new ArrayList<>(); // <- By hospital id
+    private final HashMap<Integer, Long> cellOfRow = new HashMap<>(); // <- Table row -> hospital id << 32 | item id
+
+    /**
+     * Returns the boxes of one cell, 0 if it is empty.
+     */
+    public long get(String hospitalCode, String itemCode) {
+        SparseRow row = rowOf(hospitalCode);
+        Integer item = itemIds.get(itemCode);
+        if (row == null || item == null) {
+            return 0;
+        }
+        return row.boxes[row.slotOf(item)];
+    }
+
+    /**
+     * Returns the index of the table row holding a cell, or -1.
+     */
+    public int tableRowOf(String hospitalCode, String itemCode) {
+        SparseRow row = rowOf(hospitalCode);
+        Integer item = itemIds.get(itemCode);
+        if (row == null || item == null) {
+            return -1;
+        }
+        int slot = row.slotOf(item);
+        return row.items[slot] == 0 ? -1 : row.tableRows[slot];
+    }
+
+    /**
+     * Returns the boxes a hospital received of every item it received.
+     */
+    public Map<String, Long> row(String hospitalCode) {
+        Map<String, Long> cells = new LinkedHashMap<>();
+        SparseRow row = rowOf(hospitalCode);
+        if (row != null) {
+            for (int slot = 0; slot < row.items.length; slot++) {
+                if (row.items[slot] != 0) {
+                    cells.put(itemCodes.get(row.items[slot] - 1), row.boxes[slot]);
+                }
+            }
+        }
+        return cells;
+    }
+
+    public long total(String hospitalCode) {
+        SparseRow row = rowOf(hospitalCode);
+        return row == null ? 0 : row.total;
+    }
+
+    // Every item code that ever had a cell, in the order they appeared
+    public List<String> items() {
+        return new ArrayList<>(itemCodes);
+    }
+
+    public Csr snapshot() {
+        int[] rowStart = new int[rows.size() + 1];
+        for (int hospital = 0; hospital < rows.size(); hospital++) {
+            rowStart[hospital + 1] = rowStart[hospital] + rows.get(hospital).size;
+        }
+        int[] columns = new int[rowStart[rows.size()]];
+        long[] values = new long[columns.length];
+        for (int hospital = 0; hospital < rows.size(); hospital++) {
+            SparseRow row = rows.get(hospital);
+            int[] order = new int[row.size];
+            int count = 0;
+            for (int slot = 0; slot < row.items.length; slot++) {
+                if (row.items[slot] != 0) {
+                    order[count++] = (row.items[slot] - 1);
+                }
+            }
+            Arrays.sort(order);
+            for (int i = 0; i < count; i++) {
+                columns[rowStart[hospital] + i] = order[i];
+                values[rowStart[hospital] + i] = row.boxes[row.slotOf(order[i])];
+            }
+        }
+        return new Csr(List.copyOf(hospitalCodes), List.copyOf(itemCodes), rowStart, columns, values);
+    }
+
+    @Override
+    public void put(int index, ArrayList<String> row) {
+        if (index == 0 || row == null || row.size() <= BOXES_COLUMN) {
+            remove(index);
+            return;
+        }
+        int hospital = idOf(hospitalIds, hospitalCodes, row.get(HOSPITAL_COLUMN));
+        int item = idOf(itemIds, itemCodes, row.get(ITEM_COLUMN));
+        while (rows.size() <= hospital) {
+            rows.add(new SparseRow());
+        }
+        long cell = (long) hospital << 32 | item;
+        Long previous = cellOfRow.put(index, cell);
+        if (previous != null && previous != cell) {
+            rows.get((int) (previous >>> 32)).clear((int) (long) previous); // <- The codes of the row were edited
+        }
+        rows.get(hospital).set(item, parseBoxes(row.get(BOXES_COLUMN)), index);
+    }
+
+    @Override
+    public void remove(int index) {
+        Long cell = cellOfRow.remove(index);
+        if (cell != null) {
+            rows.get((int) (cell >>> 32)).clear((int) (long) cell);
+        }
+    }
+
+    @Override
+    public void rebuild(Map<Integer, ArrayList<String>> data) {
+        rows.clear(); // <- The dictionaries stay, ids are never reused
+        cellOfRow.clear();
+        for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private SparseRow rowOf(String hospitalCode) {
+        Integer hospital = hospitalIds.get(hospitalCode);
+        return hospital == null || hospital >= rows.size() ? null : rows.get(hospital);
+    }
+
+    private static int idOf(HashMap<String, Integer> ids, ArrayList<String> codes, String code) {
+        Integer id = ids.get(code);
+        if (id == null) {
+            id = codes.size();
+            codes.add(code);
+            ids.put(code, id);
+        }
+        return id;
+    }
+
+    private static long parseBoxes(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Treating non-numeric quantity as 0: " + value);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Hash index from the value of one or more columns to the row indexes holding it.
+ * Maintained by DatabaseBase on every put, update, delete and reload, so lookups
+ * by code or name are O(1) instead of a scan over every row.
+ *
+ * Row 0 (the header) is never indexed. When several rows share a key the lowest
+ * row index comes first, which is the row a top-to-bottom scan would have found.
+ */
+public class HashIndex implements RowIndex {
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final String name;
+    private final int[] columns;
+    private final boolean unique;
+    private final HashMap<String, TreeSet<Integer>> postings = new HashMap<>();
+    private final HashMap<Integer, String> keyOfRow = new HashMap<>(); // <- Rows are edited in place, so remember what each was indexed under
+
+    HashIndex(String name, boolean unique, int... columns) {
+        this.name = name;
+        this.unique = unique;
+        this.columns = columns;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * Returns the first row holding the key, or -1 if there is none.
+     * @param values One value per indexed column.
+     */
+    public int get(String... values) {
+        TreeSet<Integer> rows = postings.get(key(values));
+        return rows == null ? -1 : rows.first();
+    }
+
+    /**
+     * Returns every row holding the key in ascending order.
+     * @param values One value per indexed column.
+     */
+    public SortedSet<Integer> getAll(String... values) {
+        TreeSet<Integer> rows = postings.get(key(values));
+        return rows == null ? Collections.emptySortedSet() : Collections.unmodifiableSortedSet(rows);
+    }
+
+    // (Re)indexes one row, dropping whatever key it had before
+    @Override
+    public void put(int index, ArrayList<String> row) {
+        remove(index);
+        if (index == 0 || row == null) {
+            return;
+        }
+        String key = keyOf(row);
+        if (key == null) {
+            return;
+        }
+        TreeSet<Integer> rows = postings.computeIfAbsent(key, k -> new TreeSet<>());
+        if (unique && !rows.isEmpty()) {
+            System.err.println("Duplicate key in unique index " + name + ": " + key.replace(KEY_SEPARATOR, ','));
+        }
+        rows.add(index);
+        keyOfRow.put(index, key);
+    }
+
+    @Override
+    public void remove(int index) {
+        String key = keyOfRow.remove(index);
+        if (key == null) {
+            return;
+        }
+        TreeSet<Integer> rows = postings.get(key);
+        rows.remove(index);
+        if (rows.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    @Override
+    public void rebuild(Map<Integer, ArrayList<String>> data) {
+        postings.clear();
+        keyOfRow.clear();
+        for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private String keyOf(ArrayList<String> row) {
+        String[] values = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] >= row.size()) {
+                return null; // <- Short or empty row
+            }
+            values[i] = row.get(columns[i]);
+        }
+        return key(values);
+    }
+
+    private String key(String... values) {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("Index " + name + " expects " + columns.length + " values");
+        }
+        return values.length == 1 ? values[0] : String.join(String.valueOf(KEY_SEPARATOR), values);
+    }
+}
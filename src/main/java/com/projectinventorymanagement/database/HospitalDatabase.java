@@ -1,36 +1,42 @@
 package com.projectinventorymanagement.database;
 
+import com.projectinventorymanagement.utils.WriteBehindFlusher;
+
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class HospitalDatabase extends DatabaseBase {
+    private static final int TOTAL_COLUMN = 2; // <- "Items Received (Total Boxes)"
+    private static final int COLUMNS = 4; // <- Code, Name, Total, isActive; per-item counts live in the distribution table
+
+    private final HashIndex byCode;
+    private final HashIndex byName;
+    private final DistributionDatabase distribution;
 
     public HospitalDatabase() {
         super("hospital"); // Loads data from "data/hospital.txt"
+        byCode = createIndex("hospital.code", true, 0);
+        byName = createIndex("hospital.name", false, 1);
+        distribution = new DistributionDatabase();
+        migrateItemColumns();
     }
 
     /**
-     * Adds a new hospital entry to the database.
-     * Computes totalItemsReceived from the individual item counts.
+     * Adds a new hospital entry to the database, with nothing received yet.
      */
-    public void addHospital(String hospitalCode, String hospitalName, int HC, int FS, int MS, int GL, int GW, int SC, boolean isActive) {
-        // Calculate total items received.
-        int totalItems = HC + FS + MS + GL + GW + SC;
+    public void addHospital(String hospitalCode, String hospitalName, boolean isActive) {
         ArrayList<String> entry = new ArrayList<>(Arrays.asList(
             hospitalCode,
             hospitalName,
-            Integer.toString(totalItems),
-            Integer.toString(HC),
-            Integer.toString(FS),
-            Integer.toString(MS),
-            Integer.toString(GL),
-            Integer.toString(GW),
-            Integer.toString(SC),
+            "0",
             Boolean.toString(isActive)
         ));
-        // Use the next available row index.
-        int newRow = getEntries().size();
-        addEntry(newRow, entry);
+        // After the last row, even when deletes left holes.
+        appendEntries(List.of(entry));
     }
     
 
@@ -38,20 +44,155 @@ public class HospitalDatabase extends DatabaseBase {
      * Finds a hospital by its code.
      */
     public ArrayList<String> findHospitalByCode(String hospitalCode) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(0).equals(hospitalCode)) {
+        return findEntry(byCode, hospitalCode);
+    }
+
+    /**
+     * Returns the row index of a hospital, or -1 if the code is unknown.
+     */
+    public int getRowIndexByCode(String hospitalCode) {
+        return findRow(byCode, hospitalCode);
+    }
+
+    /**
+     * Adds received boxes of one item to a hospital's per-item and total counts.
+     */
+    public void updateHospitalReceivedItems(String hospitalCode, String itemCode, int quantity) {
+        addReceivedItems(hospitalCode, Map.of(itemCode, quantity));
+    }
+
+    /**
+     * Adds the received boxes of several items to a hospital's per-item counts
+     * in the distribution table and to its total. Any item code is accepted.
+     *
+     * @param quantities Boxes received per item code.
+     * @return Whether the hospital exists.
+     */
+    public boolean addReceivedItems(String hospitalCode, Map<String, Integer> quantities) {
+        if (getRowIndexByCode(hospitalCode) < 0) {
+            System.out.println("Hospital not found: " + hospitalCode);
+            return false;
+        }
+        int added = 0;
+        for (int quantity : quantities.values()) {
+            added += quantity;
+        }
+        distribution.addBoxes(hospitalCode, quantities);
+        if (added != 0) {
+            int total = added;
+            modifyEntry(byCode, row -> {
+                row.set(TOTAL_COLUMN, String.valueOf(Integer.parseInt(row.get(TOTAL_COLUMN)) + total));
                 return row;
+            }, hospitalCode);
+        }
+        return true;
+    }
+
+    /**
+     * Sets a hospital's per-item counts to the given values and its total to
+     * the sum of all its counts. Items not given keep their counts.
+     *
+     * @return Whether the hospital exists.
+     */
+    public boolean setReceivedItems(String hospitalCode, Map<String, Integer> quantities) {
+        if (getRowIndexByCode(hospitalCode) < 0) {
+            return false;
+        }
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            distribution.setBoxes(hospitalCode, entry.getKey(), entry.getValue());
+        }
+        long total = distribution.getTotal(hospitalCode);
+        modifyEntry(byCode, row -> {
+            if (row.get(TOTAL_COLUMN).equals(String.valueOf(total))) {
+                return null; // <- Already right, nothing to write
+            }
+            row.set(TOTAL_COLUMN, String.valueOf(total));
+            return row;
+        }, hospitalCode);
+        return true;
+    }
+
+    /**
+     * Returns the boxes a hospital received per item code; items it never
+     * received are left out.
+     */
+    public Map<String, Long> getReceivedItems(String hospitalCode) {
+        return distribution.getReceivedItems(hospitalCode);
+    }
+
+    /**
+     * Returns the boxes a hospital received of one item.
+     */
+    public long getReceived(String hospitalCode, String itemCode) {
+        return distribution.getBoxes(hospitalCode, itemCode);
+    }
+
+    /**
+     * Returns the table holding the per-item counts.
+     */
+    public DistributionDatabase getDistribution() {
+        return distribution;
+    }
+
+    // Moves the counts of a hospital.txt that still has one column per item
+    // (HC, FS, MS, GL, GW, SC) into the distribution table, then drops the columns.
+    // The cells are written out first, so a crash in between leaves them in place
+    // and the next start only drops the columns.
+    private void migrateItemColumns() {
+        Map<Integer, ArrayList<String>> rows = getEntries();
+        ArrayList<String> header = rows.get(0);
+        if (header == null || header.size() <= COLUMNS) {
+            return;
+        }
+        int activeColumn = header.size() - 1;
+        List<String> itemCodes = header.subList(TOTAL_COLUMN + 1, activeColumn);
+        boolean copy = distribution.getItemCodes().isEmpty();
+        HashMap<Integer, ArrayList<String>> migrated = new HashMap<>();
+        for (Map.Entry<Integer, ArrayList<String>> entry : new TreeMap<>(rows).entrySet()) {
+            ArrayList<String> row = entry.getValue();
+            if (row.isEmpty() || row.get(0).isBlank()) {
+                System.err.println("Dropping hospital row " + entry.getKey() + " without a code: " + row);
+                continue;
             }
+            if (row.size() < header.size()) { // <- Trailing empty cells are not even split off
+                System.err.println("Hospital row " + entry.getKey() + " has " + row.size() + " of " + header.size()
+                        + " columns, missing counts are 0 and a missing isActive is true: " + row);
+            }
+            if (entry.getKey() != 0 && copy) {
+                int itemCells = Math.min(row.size(), activeColumn); // <- Up to isActive, or the last cell of a short row
+                for (int i = 0; i < itemCodes.size() && TOTAL_COLUMN + 1 + i < itemCells; i++) {
+                    int boxes;
+                    try {
+                        boxes = Integer.parseInt(row.get(TOTAL_COLUMN + 1 + i).trim());
+                    } catch (NumberFormatException e) {
+                        System.err.println("Treating non-numeric quantity as 0: hospital " + row.get(0) + ", item "
+                                + itemCodes.get(i) + ": " + row.get(TOTAL_COLUMN + 1 + i));
+                        boxes = 0;
+                    }
+                    if (boxes != 0) {
+                        distribution.setBoxes(row.get(0), itemCodes.get(i), boxes);
+                    }
+                }
+            }
+            migrated.put(migrated.size(), new ArrayList<>(Arrays.asList( // <- Renumbered over dropped rows
+                row.get(0),
+                row.size() > 1 ? row.get(1) : "",
+                row.size() > TOTAL_COLUMN ? row.get(TOTAL_COLUMN) : "0",
+                row.size() > activeColumn ? row.get(activeColumn) : "true")));
         }
-        return null;
+        distribution.saveData();
+        WriteBehindFlusher.flushAll();
+        replaceAll(migrated);
+        WriteBehindFlusher.flushAll();
+        System.out.println("Moved the item columns " + itemCodes + " of " + (rows.size() - 1)
+            + " hospitals into the distribution table");
     }
 
     /**
      * Displays all hospital entries (for debugging).
      */
     public void displayHospitals() {
-        for (int i = 0; i < getEntries().size(); i++) {
-            ArrayList<String> row = getEntries().get(i);
+        for (ArrayList<String> row : new TreeMap<>(getEntries()).values()) {
             System.out.println(String.join(", ", row));
         }
     }
@@ -69,12 +210,8 @@ public class HospitalDatabase extends DatabaseBase {
 
     // Retrieves Hospital Code via Hospital Name
     public String getCodeByName(String hospitalName) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(1).equals(hospitalName)) {
-                return row.get(0);
-            }
-        }
-        return null;
+        ArrayList<String> row = findEntry(byName, hospitalName);
+        return row == null ? null : row.get(0);
     }
 
     @Override
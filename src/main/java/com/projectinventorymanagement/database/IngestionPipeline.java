@@ -0,0 +1,417 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.database.TransactionImporter.Movement;
+import com.projectinventorymanagement.database.TransactionImporter.Rejection;
+import com.projectinventorymanagement.database.TransactionProcessor.Type;
+import com.projectinventorymanagement.utils.BoundedQueue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Imports transaction manifests like TransactionImporter, in four stages on
+ * their own threads, connected by BoundedQueues:
+ *
+ *   decode    1 thread      reads the file in chunks of lines
+ *   validate  N threads     parses the lines and checks them against the indexes
+ *   apply     M partitions  decides each movement against the stock; each item belongs to one partition
+ *   persist   1 thread      writes the accepted movements as units of work of batchSize lines
+ *
+ * Validated chunks are handed to the partitions in file order and a partition
+ * handles its movements one after another, so the movements of an item reach
+ * the stock in file order and the same lines are rejected as in a serial
+ * import. The apply stage decides against the stock plus the movements it
+ * accepted that are not persisted yet; persist moves the stock for real, in
+ * the same unit as the transaction rows, and still rejects a line if someone
+ * else (e.g. the GUI) took the stock meanwhile.
+ *
+ * A full queue makes the stage in front of it wait, so memory stays bounded
+ * however large the file is. Rejections arrive from several threads, one at a
+ * time but not in line order.
+ */
+public class IngestionPipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final int CHUNK_LINES = 256;
+    private static final long WAIT_NANOS = 50_000;
+
+    /**
+     * What one stage did.
+     *
+     * @param items         Lines (decode, validate) or movements (apply, persist) handled.
+     * @param busyMillis    Time spent working, summed over the stage's threads.
+     * @param blockedMillis Time spent waiting for room in the next queue.
+     * @param queueCapacity Capacity of the stage's input queue(s), 0 for decode.
+     * @param averageDepth  Depth of the input queue(s) after each put, on average.
+     */
+    public record StageReport(String stage, int threads, long items, long busyMillis, long blockedMillis,
+            int queueCapacity, double averageDepth, long maxDepth, long fullWaits) {
+
+        // Items per second the stage manages with all its threads busy
+        public double capacityPerSecond() {
+            return busyMillis == 0 ? 0 : items * 1000.0 * threads / busyMillis;
+        }
+    }
+
+    /**
+     * The totals of the import and the figures of each stage.
+     */
+    public record Report(TransactionImporter.Report totals, List<StageReport> stages) {
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(totals.toString()).append('\n');
+            text.append(String.format("%-9s %7s %10s %10s %10s %12s %8s %8s %10s%n", "Stage", "Threads", "Items",
+                    "Busy (ms)", "Blocked", "Capacity/s", "Queue", "Max", "Full"));
+            for (StageReport stage : stages) {
+                text.append(String.format("%-9s %7d %10d %10d %10d %12.0f %8.1f %8d %10d%n", stage.stage(),
+                        stage.threads(), stage.items(), stage.busyMillis(), stage.blockedMillis(),
+                        stage.capacityPerSecond(), stage.averageDepth(), stage.maxDepth(), stage.fullWaits()));
+            }
+            return text.toString().stripTrailing();
+        }
+    }
+
+    // Lines firstLine, firstLine + 1, ... of the file
+    private record Chunk(long sequence, long firstLine, List<String> lines) {
+    }
+
+    // Time and work of one stage, summed over its threads
+    private static final class Stage {
+        final String name;
+        final int threads;
+        final List<? extends BoundedQueue<?>> input;
+        final LongAdder items = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+        final LongAdder blockedNanos = new LongAdder();
+
+        Stage(String name, int threads, List<? extends BoundedQueue<?>> input) {
+            this.name = name;
+            this.threads = threads;
+            this.input = input;
+        }
+
+        StageReport report() {
+            int capacity = 0;
+            double depth = 0;
+            long maxDepth = 0;
+            long fullWaits = 0;
+            for (BoundedQueue<?> queue : input) {
+                capacity += queue.capacity();
+                depth += queue.averageDepth();
+                maxDepth = Math.max(maxDepth, queue.maxDepth());
+                fullWaits += queue.fullWaits();
+            }
+            return new StageReport(name, threads, items.sum(), busyNanos.sum() / 1_000_000,
+                    blockedNanos.sum() / 1_000_000, capacity, input.isEmpty() ? 0 : depth / input.size(), maxDepth,
+                    fullWaits);
+        }
+    }
+
+    private final TransactionImporter importer;
+    private final ItemDatabase itemDatabase;
+    private final int validators;
+    private final int partitions;
+    private final int queueCapacity;
+
+    /**
+     * @param importer   Supplies the tables, the validation and the batch size.
+     * @param validators Threads of the validate stage.
+     * @param partitions Threads of the apply stage.
+     */
+    public IngestionPipeline(TransactionImporter importer, int validators, int partitions, int queueCapacity) {
+        this.importer = importer;
+        this.itemDatabase = importer.getItemDatabase();
+        this.validators = Math.max(1, validators);
+        this.partitions = Math.max(1, partitions);
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Like TransactionImporter.importFile(), through the pipeline.
+     */
+    public Report importFile(File input, File rejectsFile) throws IOException {
+        return TransactionImporter.importFile(input, rejectsFile, this::importFrom);
+    }
+
+    /**
+     * Like TransactionImporter.importFrom(), through the pipeline.
+     *
+     * @param rejected Called by one thread at a time.
+     */
+    public Report importFrom(Reader input, Consumer<Rejection> rejected) throws IOException {
+        return new Run(input, rejected).run();
+    }
+
+    // The threads and queues of one import
+    private final class Run {
+        final BufferedReader reader;
+        final Consumer<Rejection> rejected;
+        final BoundedQueue<Chunk> lines = new BoundedQueue<>(queueCapacity);
+        final List<BoundedQueue<List<Movement>>> movements = new ArrayList<>();
+        final BoundedQueue<List<Movement>> accepted = new BoundedQueue<>(queueCapacity);
+        final Stage decode;
+        final Stage validate;
+        final Stage apply;
+        final Stage persist;
+
+        // Validated chunks wait here until those before them were routed
+        final ConcurrentHashMap<Long, List<Movement>> validated = new ConcurrentHashMap<>();
+        final AtomicLong nextChunk = new AtomicLong();
+        final ReentrantLock routeLock = new ReentrantLock();
+
+        // Accepted by apply, not yet persisted; changed under the item's lock
+        final ConcurrentHashMap<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+        final AtomicLong lineCount = new AtomicLong();
+        final AtomicLong imported = new AtomicLong();
+        final AtomicLong rejectedCount = new AtomicLong();
+        final AtomicLong batches = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Run(Reader input, Consumer<Rejection> rejected) {
+            this.reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+            this.rejected = rejected;
+            for (int i = 0; i < partitions; i++) {
+                movements.add(new BoundedQueue<>(queueCapacity));
+            }
+            decode = new Stage("decode", 1, List.of());
+            validate = new Stage("validate", validators, List.of(lines));
+            apply = new Stage("apply", partitions, movements);
+            persist = new Stage("persist", 1, List.of(accepted));
+        }
+
+        Report run() throws IOException {
+            long start = System.nanoTime();
+            Thread decoder = start("ingest-decode", this::decode);
+            List<Thread> validating = new ArrayList<>();
+            for (int i = 0; i < validators; i++) {
+                validating.add(start("ingest-validate-" + i, this::validate));
+            }
+            List<Thread> applying = new ArrayList<>();
+            for (int i = 0; i < partitions; i++) {
+                BoundedQueue<List<Movement>> partition = movements.get(i);
+                applying.add(start("ingest-apply-" + i, () -> apply(partition)));
+            }
+            Thread persister = start("ingest-persist", this::persist);
+
+            join(List.of(decoder));
+            lines.close();
+            join(validating);
+            movements.forEach(BoundedQueue::close); // <- Every chunk is routed once the last validator is done
+            join(applying);
+            accepted.close();
+            join(List.of(persister));
+
+            Throwable error = failure.get();
+            if (error instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            } else if (error instanceof RuntimeException runtime) {
+                throw runtime;
+            } else if (error instanceof Error fatal) {
+                throw fatal;
+            }
+            TransactionImporter.Report totals = new TransactionImporter.Report(lineCount.get(), imported.get(),
+                    rejectedCount.get(), (int) batches.get(), (System.nanoTime() - start) / 1_000_000);
+            return new Report(totals, List.of(decode.report(), validate.report(), apply.report(), persist.report()));
+        }
+
+        private void decode() {
+            try {
+                long sequence = 0;
+                long lineNumber = 0;
+                List<String> chunk = new ArrayList<>(CHUNK_LINES);
+                long busy = System.nanoTime();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    chunk.add(line);
+                    if (chunk.size() == CHUNK_LINES) {
+                        decode.items.add(chunk.size());
+                        busy = handOff(decode, busy, lines, new Chunk(sequence++, lineNumber - CHUNK_LINES + 1, chunk));
+                        if (busy < 0) {
+                            return;
+                        }
+                        chunk = new ArrayList<>(CHUNK_LINES);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    decode.items.add(chunk.size());
+                    handOff(decode, busy, lines, new Chunk(sequence, lineNumber - chunk.size() + 1, chunk));
+                }
+                lineCount.set(lineNumber);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void validate() {
+            Chunk chunk;
+            while ((chunk = lines.take()) != null && failure.get() == null) {
+                long busy = System.nanoTime();
+                List<Movement> valid = new ArrayList<>(chunk.lines().size());
+                for (int i = 0; i < chunk.lines().size(); i++) {
+                    long lineNumber = chunk.firstLine() + i;
+                    String line = chunk.lines().get(i);
+                    if (line.isBlank() || (lineNumber == 1 && line.startsWith("TransactionID"))) {
+                        continue; // <- Header
+                    }
+                    Movement movement = importer.parse(lineNumber, line, this::reject);
+                    if (movement != null) {
+                        valid.add(movement);
+                    }
+                }
+                validate.items.add(chunk.lines().size());
+                long blocked = System.nanoTime();
+                validate.busyNanos.add(blocked - busy);
+                while (chunk.sequence() - nextChunk.get() >= queueCapacity && failure.get() == null) {
+                    LockSupport.parkNanos(WAIT_NANOS); // <- Too far ahead of the chunk that is routed next
+                }
+                validated.put(chunk.sequence(), valid);
+                route();
+                validate.blockedNanos.add(System.nanoTime() - blocked);
+            }
+        }
+
+        // Hands validated chunks to the partitions in file order, whoever holds the lock routes for all
+        private void route() {
+            while (validated.containsKey(nextChunk.get()) && routeLock.tryLock()) {
+                try {
+                    List<Movement> chunk;
+                    while ((chunk = validated.remove(nextChunk.get())) != null) {
+                        List<List<Movement>> byPartition = new ArrayList<>();
+                        for (int i = 0; i < partitions; i++) {
+                            byPartition.add(new ArrayList<>());
+                        }
+                        for (Movement movement : chunk) {
+                            byPartition.get(Math.floorMod(movement.itemCode().hashCode(), partitions)).add(movement);
+                        }
+                        for (int i = 0; i < partitions; i++) {
+                            if (!byPartition.get(i).isEmpty() && !movements.get(i).put(byPartition.get(i))) {
+                                return; // <- Closed after a failure
+                            }
+                        }
+                        nextChunk.incrementAndGet();
+                    }
+                } finally {
+                    routeLock.unlock();
+                }
+            }
+        }
+
+        private void apply(BoundedQueue<List<Movement>> partition) {
+            List<Movement> chunk;
+            while ((chunk = partition.take()) != null && failure.get() == null) {
+                long busy = System.nanoTime();
+                List<Movement> accepting = new ArrayList<>(chunk.size());
+                for (Movement movement : chunk) {
+                    String code = movement.itemCode();
+                    int change = movement.type() == Type.DISTRIBUTE ? -movement.quantity() : movement.quantity();
+                    int[] available = new int[1];
+                    boolean accept = itemDatabase.withItemLock(code, () -> {
+                        available[0] = itemDatabase.getItemQuantity(code) + inFlight.getOrDefault(code, 0);
+                        if (available[0] + change < 0) {
+                            return false;
+                        }
+                        inFlight.merge(code, change, Integer::sum);
+                        return true;
+                    });
+                    if (accept) {
+                        accepting.add(movement);
+                    } else {
+                        reject(new Rejection(movement.lineNumber(), movement.line(),
+                                "Insufficient stock: " + available[0] + " boxes available"));
+                    }
+                }
+                apply.items.add(chunk.size());
+                if (!accepting.isEmpty() && handOff(apply, busy, accepted, accepting) < 0) {
+                    return;
+                }
+                if (accepting.isEmpty()) {
+                    apply.busyNanos.add(System.nanoTime() - busy);
+                }
+            }
+        }
+
+        private void persist() {
+            List<Movement> batch = new ArrayList<>(importer.getBatchSize());
+            List<Movement> chunk;
+            while ((chunk = accepted.take()) != null && failure.get() == null) {
+                batch.addAll(chunk);
+                while (batch.size() >= importer.getBatchSize()) {
+                    List<Movement> full = batch.subList(0, importer.getBatchSize());
+                    persistBatch(full);
+                    full.clear();
+                }
+            }
+            if (!batch.isEmpty() && failure.get() == null) {
+                persistBatch(batch);
+            }
+        }
+
+        private void persistBatch(List<Movement> batch) {
+            long busy = System.nanoTime();
+            imported.addAndGet(importer.applyBatch(batch, this::reject, movement -> inFlight.merge(
+                    movement.itemCode(), movement.type() == Type.DISTRIBUTE ? movement.quantity()
+                            : -movement.quantity(), Integer::sum))); // <- Now in the stock itself, or rejected
+            batches.incrementAndGet();
+            persist.items.add(batch.size());
+            persist.busyNanos.add(System.nanoTime() - busy);
+        }
+
+        // Puts into the next queue and books the time so far as busy; returns the new start, or -1 if closed
+        private <E> long handOff(Stage stage, long busy, BoundedQueue<E> queue, E element) {
+            long blocked = System.nanoTime();
+            stage.busyNanos.add(blocked - busy);
+            if (!queue.put(element)) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            stage.blockedNanos.add(now - blocked);
+            return now;
+        }
+
+        private void reject(Rejection rejection) {
+            synchronized (rejected) {
+                rejectedCount.incrementAndGet();
+                rejected.accept(rejection);
+            }
+        }
+
+        private Thread start(String name, Runnable stage) {
+            return Thread.ofPlatform().name(name).start(() -> {
+                try {
+                    stage.run();
+                } catch (Throwable e) {
+                    if (failure.compareAndSet(null, e)) {
+                        lines.close(); // <- Lets every other stage run out
+                        movements.forEach(BoundedQueue::close);
+                        accepted.close();
+                    }
+                }
+            });
+        }
+
+        private void join(List<Thread> threads) {
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while importing", e);
+                }
+            }
+        }
+    }
+}
@@ -4,18 +4,37 @@ import com.projectinventorymanagement.models.Item;
 import com.projectinventorymanagement.models.Supplier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 public class ItemDatabase extends DatabaseBase {
+    // Stock movements on the same item run one at a time, different items in parallel
+    private static final int LOCK_STRIPES = 64;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    private final HashIndex byCode;
+    private final HashIndex byName;
+    private final StockLedger stock; // <- Owns the quantities; column 2 is rendered from it
 
     public ItemDatabase() {
         super("ppe"); // Loads data from "data/ppe.txt"
         // Ensure that header row exists. Row 0 holds header fields.
-        if (!getEntries().containsKey(0) || getEntries().get(0) == null || getEntries().get(0).isEmpty()) {
+        if (getEntry(0) == null || getEntry(0).isEmpty()) {
             ArrayList<String> header = new ArrayList<>(Arrays.asList("ItemCode", "ItemName", "Quantity", "SupplierCode"));
-            getEntries().put(0, header);
+            addEntry(0, header);
             saveData();
         }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        byCode = createIndex("ppe.code", true, 0);
+        byName = createIndex("ppe.name", false, 1);
+        stock = addIndex(new StockLedger(0, 2));
     }
 
     /**
@@ -32,19 +51,15 @@ public class ItemDatabase extends DatabaseBase {
             supplier.getSupplierCode()
         ));
 
-        int newRow = getEntries().size();
-        addEntry(newRow, row);
+        appendEntries(List.of(row)); // <- After the last row, even when deletes left holes
     }
     
     /**
      * Retrieves a list of item entries (skipping the header row).
      */
     public List<ArrayList<String>> getItems() {
-        List<ArrayList<String>> list = new ArrayList<>();
-        for (int i = 1; i < getEntries().size(); i++) {
-            list.add(getEntries().get(i));
-        }
-        return list;
+        // In row order; a delete leaves a hole until the next checkpoint
+        return new ArrayList<>(new TreeMap<>(getEntries()).tailMap(1).values());
     }
 
     // Retrieves Item Names
@@ -62,8 +77,7 @@ public class ItemDatabase extends DatabaseBase {
      * Displays all item entries in the console.
      */
     public void displayItems() {
-        for (int i = 1; i < getEntries().size(); i++) {
-            ArrayList<String> row = getEntries().get(i);
+        for (ArrayList<String> row : getItems()) {
             System.out.println("Item Code: " + row.get(0) +
                                ", Item Name: " + row.get(1) +
                                ", Quantity: " + row.get(2) +
@@ -73,51 +87,107 @@ public class ItemDatabase extends DatabaseBase {
 
     // Retrieves Item Name via Item Code
     public String getCodeByName(String itemName) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(1).equals(itemName)) {
-                return row.get(0);
+        ArrayList<String> row = findEntry(byName, itemName);
+        return row == null ? null : row.get(0);
+    }
+
+    /**
+     * Runs a stock movement while holding the lock for the item, so a check of
+     * the quantity and the writes that depend on it (in this and other tables)
+     * cannot interleave with another movement of the same item.
+     * updateItemQuantity itself is lock-free and needs no lock.
+     */
+    public boolean withItemLock(String itemCode, BooleanSupplier action) {
+        ReentrantLock lock = stripeFor(itemCode);
+        lock.lock();
+        try {
+            return action.getAsBoolean();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Like {@link #withItemLock(String, BooleanSupplier)} for several items at
+     * once. The locks are taken in a fixed order, so two baskets sharing items
+     * cannot deadlock.
+     */
+    public boolean withItemLocks(Collection<String> itemCodes, BooleanSupplier action) {
+        TreeSet<Integer> order = new TreeSet<>();
+        for (String itemCode : itemCodes) {
+            order.add(Math.floorMod(itemCode.hashCode(), LOCK_STRIPES));
+        }
+        List<ReentrantLock> held = new ArrayList<>();
+        try {
+            for (int stripe : order) {
+                stripes[stripe].lock();
+                held.add(stripes[stripe]);
+            }
+            return action.getAsBoolean();
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
             }
         }
-        return null;
     }
 
-    // Item Qty update method
+    // Adds quantityChange to the stock; fails without changing anything if the result would be negative
     public boolean updateItemQuantity(String itemCode, int quantityChange) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(0).equals(itemCode)) {
-                int currentQuantity = Integer.parseInt(row.get(2));
-                int newQuantity = currentQuantity + quantityChange;
-    
-                if (newQuantity < 0) {
-                    return false; // <- Prevent negative stock
-                }
-    
-                row.set(2, Integer.toString(newQuantity));
-                saveData();
-                return true;
-            }
+        if (!stock.tryAdd(itemCode, quantityChange)) {
+            return false;
         }
-        return false;
+        markDirty(); // <- The row is rendered when this table is flushed
+        return true;
     }
 
-    // Retrieves Item Qty
+    private ReentrantLock stripeFor(String itemCode) {
+        return stripes[Math.floorMod(itemCode.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Retrieves Item Qty, 0 if the item is not found
     public int getItemQuantity(String itemCode) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(0).equals(itemCode)) {
-                return Integer.parseInt(row.get(2));
-            }
-        }
-        return 0; // Item not found, return 0
+        return (int) stock.quantity(itemCode);
     }
 
     // Retrieves Item Name via Item Code
     public String getNameByCode(String itemCode) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(0).equals(itemCode)) {
-                return row.get(1);
+        ArrayList<String> row = findEntry(byCode, itemCode);
+        return row == null ? null : row.get(1);
+    }
+
+    // Writes the quantities moved since the last render into their rows
+    @Override
+    protected void renderPendingRows() {
+        if (stock == null || !stock.hasPending()) {
+            return; // <- Also while the base constructor runs
+        }
+        stock.drainPending(code -> renderEntry(byCode, row -> {
+            String quantity = stock.render(code);
+            if (quantity == null || quantity.equals(row.get(2))) {
+                return null; // <- Moved back to where it was
             }
+            row.set(2, quantity);
+            return row;
+        }, code));
+    }
+
+    /**
+     * Writes the current stock of the given items into their rows now, even
+     * if a row already shows it, so a unit of work that moved the stock
+     * carries the rows in the journal. Call joinUnitOfWork() before moving it.
+     */
+    public void renderStock(Collection<String> itemCodes) {
+        for (String code : itemCodes) {
+            renderEntry(byCode, row -> {
+                String quantity = stock.render(code);
+                if (quantity == null) {
+                    return null;
+                }
+                row.set(2, quantity);
+                return row;
+            }, code);
         }
-        return null;
+        markDirty();
     }
 
     @Override
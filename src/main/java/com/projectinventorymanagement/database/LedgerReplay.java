@@ -0,0 +1,485 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.database.TransactionProcessor.Type;
+import com.projectinventorymanagement.utils.BackgroundIO;
+import com.projectinventorymanagement.utils.UnitOfWorkJournal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Derives the counters other tables keep from the transaction log, and
+ * reports (or repairs) where they drifted apart:
+ *   ppe.txt       stock = opening balance + received - distributed, per item
+ *   hospital.txt  boxes distributed to the hospital per item (distribution.txt), Total = their sum
+ *   supplier.txt  quantity = opening balance + received from the supplier, per item
+ *
+ * The log is sharded by item on a ForkJoinPool: the rows are bucketed by item
+ * code in parallel ranges, then each item's movements are replayed in log
+ * order as a task of its own, which also finds the lowest the stock ever went.
+ *
+ * The log does not say what was in stock (or delivered) before its first
+ * transaction, so the first replay adopts opening balances that make today's
+ * counters agree and keeps them in data/opening.txt; every later replay holds
+ * the counters to them. An opening balance is never so low that the stock
+ * would have gone below zero; a counter that needs one diverges right away.
+ * Hospitals start from zero.
+ *
+ * The replay runs while holding every item's lock, so no stock movement
+ * (TransactionProcessor, imports) is half done. A repair is one unit of work.
+ * Start it on demand (replay in HeadlessCli) or at startup with
+ * -Dinventory.replayOnStartup=report or =repair.
+ */
+public class LedgerReplay {
+    private static final File OPENING_FILE = new File("data/opening.txt");
+    private static final String STARTUP_MODE = System.getProperty("inventory.replayOnStartup");
+    private static final int BUCKET_ROWS = 16_384; // <- Rows one bucketing task handles without splitting
+    private static final int LISTED = 50; // <- Divergences and problems shown by Report.toString()
+
+    /**
+     * A counter that does not match the log.
+     *
+     * @param column An item code, "Quantity" or "Total".
+     */
+    public record Divergence(String table, String key, String column, long recorded, long derived) {
+
+        @Override
+        public String toString() {
+            return table + " " + key + " " + column + ": recorded " + recorded + ", derived " + derived;
+        }
+    }
+
+    /**
+     * The outcome of a replay.
+     *
+     * @param adopted  Opening balances adopted by this replay.
+     * @param problems Log entries that could not be replayed, and stock that went below zero.
+     * @param repaired Whether the divergent counters were set to the derived values.
+     */
+    public record Report(int transactions, int items, int parallelism, long millis, int adopted,
+            List<Divergence> divergences, List<String> problems, boolean repaired) {
+
+        public boolean consistent() {
+            return divergences.isEmpty() && problems.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format(
+                    "Replayed %d transactions of %d items on %d threads in %d ms, %d opening balances adopted.",
+                    transactions, items, parallelism, millis, adopted));
+            for (Divergence divergence : divergences.subList(0, Math.min(LISTED, divergences.size()))) {
+                text.append('\n').append(divergence);
+            }
+            for (String problem : problems.subList(0, Math.min(LISTED, problems.size()))) {
+                text.append('\n').append(problem);
+            }
+            if (consistent()) {
+                return text.append("\nEvery counter matches the log.").toString();
+            }
+            return text.append('\n').append(divergences.size()).append(" divergences, ").append(problems.size())
+                    .append(" problems").append(repaired ? ", counters repaired." : ".").toString();
+        }
+    }
+
+    // What the transactions of one item add up to
+    private static final class ItemState {
+        final String itemCode;
+        long received;
+        long distributed;
+        long lowest; // <- Lowest running net of the movements, and the transaction that reached it
+        String lowestAt;
+        final Map<String, Long> byHospital = new HashMap<>();
+        final Map<String, Long> bySupplier = new HashMap<>();
+        final List<String> problems = new ArrayList<>();
+
+        ItemState(String itemCode) {
+            this.itemCode = itemCode;
+        }
+    }
+
+    // Groups rows [from, to) by item code, keeping their order
+    @SuppressWarnings("serial") // <- ForkJoinTask is Serializable, but the replay tasks are never serialized
+    private static final class Bucket extends RecursiveTask<Map<String, List<ArrayList<String>>>> {
+        private final List<ArrayList<String>> rows;
+        private final int from;
+        private final int to;
+
+        Bucket(List<ArrayList<String>> rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, List<ArrayList<String>>> compute() {
+            if (to - from <= BUCKET_ROWS) {
+                Map<String, List<ArrayList<String>>> shards = new HashMap<>();
+                for (ArrayList<String> row : rows.subList(from, to)) {
+                    shards.computeIfAbsent(row.size() > 1 ? row.get(1) : "", _ -> new ArrayList<>()).add(row);
+                }
+                return shards;
+            }
+            int middle = (from + to) >>> 1;
+            Bucket left = new Bucket(rows, from, middle);
+            left.fork();
+            Map<String, List<ArrayList<String>>> right = new Bucket(rows, middle, to).compute();
+            Map<String, List<ArrayList<String>>> shards = left.join();
+            right.forEach((code, movements) -> shards.computeIfAbsent(code, _ -> new ArrayList<>()).addAll(movements));
+            return shards;
+        }
+    }
+
+    // Replays the movements of one item in log order
+    @SuppressWarnings("serial") // <- Never serialized, see Bucket
+    private static final class Shard extends RecursiveTask<ItemState> {
+        private final String itemCode;
+        private final List<ArrayList<String>> movements;
+
+        Shard(String itemCode, List<ArrayList<String>> movements) {
+            this.itemCode = itemCode;
+            this.movements = movements;
+        }
+
+        @Override
+        protected ItemState compute() {
+            ItemState state = new ItemState(itemCode);
+            long net = 0;
+            for (ArrayList<String> row : movements) {
+                Type type = row.size() >= 5 ? Type.fromLabel(row.get(3)) : null;
+                long quantity = row.size() >= 5 ? parse(row.get(4)) : -1;
+                if (type == null || quantity < 0) {
+                    state.problems.add("Transaction " + (row.isEmpty() ? "?" : row.get(0)) + " cannot be replayed: "
+                            + String.join(",", row));
+                    continue;
+                }
+                if (type == Type.DISTRIBUTE) {
+                    state.distributed += quantity;
+                    state.byHospital.merge(row.get(2), quantity, Long::sum);
+                    net -= quantity;
+                } else {
+                    state.received += quantity;
+                    state.bySupplier.merge(row.get(2), quantity, Long::sum);
+                    net += quantity;
+                }
+                if (net < state.lowest) {
+                    state.lowest = net;
+                    state.lowestAt = row.get(0);
+                }
+            }
+            return state;
+        }
+    }
+
+    // Buckets the log and replays every item's shard
+    @SuppressWarnings("serial") // <- Never serialized, see Bucket
+    private static final class Replay extends RecursiveTask<List<ItemState>> {
+        private final List<ArrayList<String>> rows;
+
+        Replay(List<ArrayList<String>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        protected List<ItemState> compute() {
+            List<Shard> shards = new ArrayList<>();
+            new Bucket(rows, 0, rows.size()).compute().forEach((code, movements) -> shards.add(new Shard(code, movements)));
+            invokeAll(shards);
+            List<ItemState> states = new ArrayList<>();
+            for (Shard shard : shards) {
+                states.add(shard.join());
+            }
+            return states;
+        }
+    }
+
+    private final TransactionDatabase transactionDatabase;
+    private final ItemDatabase itemDatabase;
+    private final HospitalDatabase hospitalDatabase;
+    private final SupplierDatabase supplierDatabase;
+    private final ForkJoinPool pool;
+
+    public LedgerReplay(TransactionDatabase transactionDatabase, ItemDatabase itemDatabase,
+            HospitalDatabase hospitalDatabase, SupplierDatabase supplierDatabase) {
+        this(transactionDatabase, itemDatabase, hospitalDatabase, supplierDatabase, ForkJoinPool.commonPool());
+    }
+
+    public LedgerReplay(TransactionDatabase transactionDatabase, ItemDatabase itemDatabase,
+            HospitalDatabase hospitalDatabase, SupplierDatabase supplierDatabase, ForkJoinPool pool) {
+        this.transactionDatabase = transactionDatabase;
+        this.itemDatabase = itemDatabase;
+        this.hospitalDatabase = hospitalDatabase;
+        this.supplierDatabase = supplierDatabase;
+        this.pool = pool;
+    }
+
+    /**
+     * Replays the log if -Dinventory.replayOnStartup asks for it, once the
+     * tables are loaded, and prints the report.
+     */
+    public static void onStartup() {
+        if (!"report".equals(STARTUP_MODE) && !"repair".equals(STARTUP_MODE)) {
+            return;
+        }
+        DatabaseContext databases = DatabaseContext.get();
+        CompletableFuture<TransactionDatabase> transactions = databases.transactions();
+        CompletableFuture<ItemDatabase> items = databases.items();
+        CompletableFuture<HospitalDatabase> hospitals = databases.hospitals();
+        CompletableFuture<SupplierDatabase> suppliers = databases.suppliers();
+        CompletableFuture.allOf(transactions, items, hospitals, suppliers)
+                .thenCompose(_ -> BackgroundIO.supply(() -> new LedgerReplay(transactions.join(), items.join(),
+                        hospitals.join(), suppliers.join()).replay("repair".equals(STARTUP_MODE))))
+                .whenComplete((report, error) -> {
+                    if (error != null) {
+                        System.err.println("Error replaying the transaction log");
+                        error.printStackTrace();
+                    } else {
+                        System.out.println(report);
+                    }
+                });
+    }
+
+    /**
+     * Replays the log and compares the counters with it.
+     *
+     * @param repair Whether to set divergent counters to the derived values.
+     */
+    public Report replay(boolean repair) {
+        long start = System.nanoTime();
+        List<String> itemCodes = new ArrayList<>();
+        for (ArrayList<String> row : itemDatabase.getItems()) {
+            itemCodes.add(row.get(0));
+        }
+        Report[] report = new Report[1];
+        Supplier<Boolean> work = () -> itemDatabase.withItemLocks(itemCodes, () -> {
+            if (repair) {
+                itemDatabase.joinUnitOfWork(); // <- See TransactionProcessor
+            }
+            report[0] = replayLocked(repair, start);
+            return true;
+        });
+        if (repair) {
+            UnitOfWorkJournal.run(work);
+        } else {
+            work.get();
+        }
+        return report[0];
+    }
+
+    private Report replayLocked(boolean repair, long start) {
+        List<ArrayList<String>> rows = new ArrayList<>(new TreeMap<>(transactionDatabase.getEntries()).tailMap(1)
+                .values()); // <- In log order, without the header
+        Map<String, ItemState> states = new HashMap<>();
+        for (ItemState state : pool.invoke(new Replay(rows))) {
+            states.put(state.itemCode, state);
+        }
+
+        Map<String, Long> opening = readOpeningBalances();
+        int openingCount = opening.size();
+        List<Divergence> divergences = new ArrayList<>();
+        List<String> problems = new ArrayList<>();
+        for (ItemState state : states.values()) {
+            problems.addAll(state.problems);
+        }
+        compareStock(states, opening, divergences, problems);
+        compareHospitals(states, divergences, problems);
+        compareSuppliers(states, opening, divergences);
+        int adopted = opening.size() - openingCount;
+        if (adopted > 0) {
+            writeOpeningBalances(opening);
+        }
+        if (repair) {
+            repair(divergences, problems);
+        }
+        return new Report(rows.size(), states.size(), pool.getParallelism(), (System.nanoTime() - start) / 1_000_000,
+                adopted, divergences, problems, repair);
+    }
+
+    private void compareStock(Map<String, ItemState> states, Map<String, Long> opening, List<Divergence> divergences,
+            List<String> problems) {
+        Set<String> known = new HashSet<>();
+        for (ArrayList<String> row : itemDatabase.getItems()) {
+            String code = row.get(0);
+            known.add(code);
+            ItemState state = states.getOrDefault(code, new ItemState(code));
+            long net = state.received - state.distributed;
+            long recorded = itemDatabase.getItemQuantity(code);
+            long openingBalance = opening.computeIfAbsent("ppe," + code,
+                    _ -> Math.max(recorded - net, -state.lowest));
+            if (openingBalance + net != recorded) {
+                divergences.add(new Divergence("ppe", code, "Quantity", recorded, openingBalance + net));
+            }
+            if (openingBalance + state.lowest < 0) {
+                problems.add(code + " went down to " + (openingBalance + state.lowest) + " boxes"
+                        + (state.lowestAt == null ? " before its first transaction" : " at transaction "
+                        + state.lowestAt));
+            }
+        }
+        for (String code : states.keySet()) {
+            if (!known.contains(code)) {
+                problems.add("Transactions of unknown item: " + code);
+            }
+        }
+    }
+
+    private void compareHospitals(Map<String, ItemState> states, List<Divergence> divergences,
+            List<String> problems) {
+        Map<String, Map<String, Long>> distributed = new HashMap<>(); // <- Hospital -> item -> boxes
+        for (ItemState state : states.values()) {
+            state.byHospital.forEach((hospital, boxes) -> distributed
+                    .computeIfAbsent(hospital, _ -> new HashMap<>()).put(state.itemCode, boxes));
+        }
+        for (Map.Entry<Integer, ArrayList<String>> entry : new TreeMap<>(hospitalDatabase.getEntries()).entrySet()) {
+            ArrayList<String> row = entry.getValue();
+            if (entry.getKey() == 0 || row.size() < 3) {
+                continue;
+            }
+            String code = row.get(0);
+            Map<String, Long> items = distributed.getOrDefault(code, Map.of());
+            Map<String, Long> recorded = hospitalDatabase.getReceivedItems(code);
+            Set<String> itemCodes = new TreeSet<>(recorded.keySet());
+            itemCodes.addAll(items.keySet());
+            long total = 0;
+            for (String item : itemCodes) {
+                long derived = items.getOrDefault(item, 0L);
+                total += derived;
+                if (recorded.getOrDefault(item, 0L) != derived) {
+                    divergences.add(new Divergence("hospital", code, item, recorded.getOrDefault(item, 0L), derived));
+                }
+            }
+            if (parse(row.get(2)) != total) {
+                divergences.add(new Divergence("hospital", code, "Total", parse(row.get(2)), total));
+            }
+            distributed.remove(code);
+        }
+        for (String code : distributed.keySet()) {
+            problems.add("Distributions to unknown hospital: " + code);
+        }
+    }
+
+    private void compareSuppliers(Map<String, ItemState> states, Map<String, Long> opening,
+            List<Divergence> divergences) {
+        Map<String, Long> received = new LinkedHashMap<>(); // <- "supplier,item" -> boxes
+        for (ItemState state : states.values()) {
+            state.bySupplier.forEach((supplier, boxes) -> received.put(supplier + "," + state.itemCode, boxes));
+        }
+        for (Map.Entry<Integer, ArrayList<String>> entry : new TreeMap<>(supplierDatabase.getEntries()).entrySet()) {
+            ArrayList<String> row = entry.getValue();
+            if (entry.getKey() == 0 || row.size() < 4) {
+                continue;
+            }
+            String key = row.get(0) + "," + row.get(2);
+            long recorded = parse(row.get(3));
+            long net = received.getOrDefault(key, 0L);
+            long openingBalance = opening.computeIfAbsent("supplier," + key, _ -> Math.max(recorded - net, 0));
+            if (openingBalance + net != recorded) {
+                divergences.add(new Divergence("supplier", row.get(0), row.get(2), recorded, openingBalance + net));
+            }
+            received.remove(key);
+        }
+        received.forEach((key, boxes) -> { // <- Deliveries without a supplier row
+            String[] parts = key.split(",", 2);
+            divergences.add(new Divergence("supplier", parts[0], parts[1], 0, boxes));
+        });
+    }
+
+    // Sets the divergent counters to the derived values, within the caller's unit of work
+    private void repair(List<Divergence> divergences, List<String> problems) {
+        List<String> stock = new ArrayList<>();
+        Map<String, Map<String, Integer>> hospitals = new LinkedHashMap<>();
+        for (Divergence divergence : divergences) {
+            try {
+                switch (divergence.table()) {
+                    case "ppe" -> {
+                        if (itemDatabase.updateItemQuantity(divergence.key(),
+                                Math.toIntExact(divergence.derived() - divergence.recorded()))) {
+                            stock.add(divergence.key());
+                        } else {
+                            problems.add("Cannot set the stock of " + divergence.key() + " to " + divergence.derived());
+                        }
+                    }
+                    case "hospital" -> {
+                        Map<String, Integer> items = hospitals.computeIfAbsent(divergence.key(), _ -> new HashMap<>());
+                        if (!"Total".equals(divergence.column())) {
+                            items.put(divergence.column(), Math.toIntExact(divergence.derived()));
+                        }
+                    }
+                    default -> supplierDatabase.setReceivedQuantity(divergence.key(), divergence.column(),
+                            Math.toIntExact(divergence.derived()));
+                }
+            } catch (ArithmeticException e) { // <- The counters are int columns; the log can add up past them
+                problems.add("Cannot repair " + divergence + ": out of range");
+            }
+        }
+        itemDatabase.renderStock(stock);
+        hospitals.forEach(hospitalDatabase::setReceivedItems); // <- The total follows from the per-item counts
+    }
+
+    private static Map<String, Long> readOpeningBalances() {
+        Map<String, Long> opening = new LinkedHashMap<>();
+        if (!OPENING_FILE.exists()) {
+            return opening;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(OPENING_FILE),
+                StandardCharsets.UTF_8))) {
+            String line = reader.readLine(); // <- Header
+            while ((line = reader.readLine()) != null) {
+                int comma = line.lastIndexOf(',');
+                if (comma > 0) {
+                    opening.put(line.substring(0, comma), parse(line.substring(comma + 1)));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + OPENING_FILE.getPath());
+            e.printStackTrace();
+        }
+        return opening;
+    }
+
+    // Rewrites the file through a temporary file, so a crash leaves the old or the new one
+    private static void writeOpeningBalances(Map<String, Long> opening) {
+        File temporary = new File(OPENING_FILE.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary),
+                StandardCharsets.UTF_8))) {
+            writer.write("Table,Key,Quantity\n");
+            for (Map.Entry<String, Long> entry : opening.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing file: " + temporary.getPath());
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(temporary.toPath(), OPENING_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing file: " + OPENING_FILE.getPath());
+            e.printStackTrace();
+        }
+    }
+
+    // Non-numeric counters count as -1, so they always diverge
+    private static long parse(String number) {
+        try {
+            return Long.parseLong(number.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
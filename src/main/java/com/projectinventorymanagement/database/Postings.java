@@ -0,0 +1,73 @@
+package com.projectinventorymanagement.database;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted, duplicate-free list of row indexes backed by a primitive int array.
+ * New rows usually get the highest index, so adds are mostly appends.
+ */
+class Postings {
+    private int[] rows = new int[4];
+    private int size;
+
+    void add(int row) {
+        int position = Arrays.binarySearch(rows, 0, size, row);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        System.arraycopy(rows, position, rows, position + 1, size - position);
+        rows[position] = row;
+        size++;
+    }
+
+    void remove(int row) {
+        int position = Arrays.binarySearch(rows, 0, size, row);
+        if (position >= 0) {
+            System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+            size--;
+        }
+    }
+
+    int get(int position) {
+        return rows[position];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void addTo(BitSet result) {
+        for (int i = 0; i < size; i++) {
+            result.set(rows[i]);
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(rows[i]);
+        }
+    }
+
+    static Postings read(DataInputStream in) throws IOException {
+        Postings postings = new Postings();
+        postings.size = in.readInt();
+        postings.rows = new int[Math.max(4, postings.size)];
+        for (int i = 0; i < postings.size; i++) {
+            postings.rows[i] = in.readInt();
+        }
+        return postings;
+    }
+}
@@ -0,0 +1,23 @@
+package com.projectinventorymanagement.database;
+
+import java.util.List;
+
+/**
+ * One change to a table's rows, as published by DatabaseBase.changes().
+ *
+ * @param table    The table's file name, e.g. "ppe".
+ * @param sequence Increases by one per change of the table (see DatabaseBase.getChangeSequence()).
+ * @param index    The row index, or -1 for RELOAD.
+ * @param oldRow   The row before the change, null for INSERT and RELOAD. Unmodifiable.
+ * @param newRow   The row after the change, null for DELETE and RELOAD. Unmodifiable.
+ */
+public record RowChange(String table, Kind kind, long sequence, int index, List<String> oldRow,
+        List<String> newRow) {
+
+    public enum Kind {
+        INSERT,
+        UPDATE,
+        DELETE,
+        RELOAD // <- Rows were replaced or renumbered wholesale: read them again
+    }
+}
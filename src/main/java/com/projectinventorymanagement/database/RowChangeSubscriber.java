@@ -0,0 +1,134 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base for subscribers to DatabaseBase.changes() that keep a view of the rows
+ * up to date with deltas instead of re-reading the table.
+ *
+ * Changes arrive in batches through deliver(), e.g. onto the JavaFX thread,
+ * and more are requested only once a batch was applied, so a slow view holds
+ * the publisher back instead of queueing without bound. If it falls so far
+ * behind that the publisher drops changes for it, or the table publishes
+ * RELOAD, resync() is called to read the rows again, and changes the new
+ * rows already contain are skipped.
+ */
+public abstract class RowChangeSubscriber implements Flow.Subscriber<RowChange> {
+    private static final int BATCH = 256;
+
+    private final DatabaseBase table;
+    private final ConcurrentLinkedQueue<RowChange> received = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean lagged;
+    private volatile Flow.Subscription subscription;
+    private long resyncedAt = -1; // <- Changes up to this sequence are in the rows read by the last resync()
+
+    protected RowChangeSubscriber(DatabaseBase table) {
+        this.table = table;
+    }
+
+    /**
+     * Subscribes to the table's changes.
+     */
+    public void subscribe() {
+        table.changes().subscribe(this);
+    }
+
+    /**
+     * Stops receiving changes, e.g. when the view is closed.
+     */
+    public void cancel() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(BATCH);
+    }
+
+    @Override
+    public void onNext(RowChange change) {
+        received.add(change);
+        schedule();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println("Error in change feed of: " + table.getTableName());
+        throwable.printStackTrace();
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    // Called by the table when it dropped a change for this subscriber
+    void lagged() {
+        lagged = true;
+        schedule();
+    }
+
+    /**
+     * Runs the given batch handler where the view may be changed; the
+     * default runs it on the calling thread.
+     */
+    protected void deliver(Runnable drain) {
+        drain.run();
+    }
+
+    /**
+     * Applies INSERT, UPDATE and DELETE changes, oldest first.
+     */
+    protected abstract void apply(List<RowChange> changes);
+
+    /**
+     * Reads all rows of the table again.
+     */
+    protected abstract void resync();
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            deliver(this::drain);
+        }
+    }
+
+    private synchronized void drain() {
+        scheduled.set(false); // <- Changes that arrive from here on schedule another drain
+        List<RowChange> batch = new ArrayList<>();
+        RowChange change;
+        while ((change = received.poll()) != null) {
+            batch.add(change);
+        }
+        boolean reload = lagged;
+        lagged = false;
+        for (RowChange each : batch) {
+            reload |= each.kind() == RowChange.Kind.RELOAD;
+        }
+        if (reload) {
+            long sequence = table.getChangeSequence(); // <- Before the rows, so nothing newer is skipped
+            resync();
+            resyncedAt = sequence;
+        }
+        List<RowChange> deltas = new ArrayList<>();
+        for (RowChange each : batch) {
+            if (each.kind() != RowChange.Kind.RELOAD && each.sequence() > resyncedAt) {
+                deltas.add(each);
+            }
+        }
+        if (!deltas.isEmpty()) {
+            apply(deltas);
+        }
+        Flow.Subscription current = subscription;
+        if (!batch.isEmpty() && current != null) {
+            current.request(batch.size());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * A secondary index over the rows of a table, kept up to date by DatabaseBase.
+ * Row 0 holds the header and should not be indexed.
+ */
+public interface RowIndex {
+
+    /**
+     * Indexes a row that was added or changed, replacing whatever the index
+     * held for that row index before.
+     * @param index The row index.
+     * @param row The new row contents, or null if the row was removed.
+     */
+    void put(int index, ArrayList<String> row);
+
+    void remove(int index);
+
+    // Discards everything and indexes all rows again
+    void rebuild(Map<Integer, ArrayList<String>> data);
+}
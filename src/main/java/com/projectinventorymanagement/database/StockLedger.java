@@ -0,0 +1,218 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Stock quantities as primitive counters, one per item code. Each code gets a
+ * dense id from a dictionary the first time it is seen, and its quantity lives
+ * in a slot of an AtomicLongArray, so reading the stock or moving it is a map
+ * lookup plus an atomic read or compare-and-set, without locking, parsing or
+ * allocating.
+ *
+ * The quantity column of the item rows becomes a view of the counters: a
+ * movement only marks the item pending, and the owning table writes the
+ * current value into the row (and so into its log) when it next flushes or
+ * hands rows out. Kept up to date as a RowIndex, so rows loaded, replayed or
+ * edited by hand set the counter, except when they carry the value last
+ * rendered from it: that is either the ledger's own write coming back, or a
+ * stale copy of a row that must not undo the movements since.
+ *
+ * put, remove, rebuild and render run under the table's write lock.
+ */
+public class StockLedger implements RowIndex {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 12; // <- Room for 4M item codes
+    private static final long ABSENT = Long.MIN_VALUE; // <- No row holds the code (any more)
+
+    private final int codeColumn;
+    private final int quantityColumn;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Chunks are created before their first id is published through ids or count, and never replaced
+    private final AtomicLongArray[] quantities = new AtomicLongArray[MAX_CHUNKS];
+    private final AtomicIntegerArray[] pending = new AtomicIntegerArray[MAX_CHUNKS];
+    private final long[][] rendered = new long[MAX_CHUNKS][]; // <- Value last written to (or read from) the row
+    private final ArrayList<String> codes = new ArrayList<>(); // <- Code of each id, guarded by this
+    private volatile int count;
+    private volatile boolean anyPending;
+    private final HashMap<Integer, String> codeOfRow = new HashMap<>();
+
+    public StockLedger(int codeColumn, int quantityColumn) {
+        this.codeColumn = codeColumn;
+        this.quantityColumn = quantityColumn;
+    }
+
+    /**
+     * Returns the quantity in stock, or 0 if no row holds the code.
+     */
+    public long quantity(String code) {
+        Integer id = ids.get(code);
+        if (id == null) {
+            return 0;
+        }
+        long value = quantities[id >>> CHUNK_BITS].get(id & (CHUNK_SIZE - 1));
+        return value == ABSENT ? 0 : value;
+    }
+
+    /**
+     * Adds delta to the quantity, unless no row holds the code or the result
+     * would be negative, in which case nothing changes.
+     * @return Whether the quantity was changed.
+     */
+    public boolean tryAdd(String code, long delta) {
+        Integer id = ids.get(code);
+        if (id == null) {
+            return false;
+        }
+        AtomicLongArray chunk = quantities[id >>> CHUNK_BITS];
+        int slot = id & (CHUNK_SIZE - 1);
+        long current;
+        long next;
+        do {
+            current = chunk.get(slot);
+            next = current + delta;
+            if (current == ABSENT || next < 0) {
+                return false; // <- Prevent negative stock
+            }
+        } while (!chunk.compareAndSet(slot, current, next));
+        pending[id >>> CHUNK_BITS].set(slot, 1);
+        anyPending = true;
+        return true;
+    }
+
+    /**
+     * Whether some quantity changed since its row was last rendered.
+     */
+    public boolean hasPending() {
+        return anyPending;
+    }
+
+    /**
+     * Hands the code of every item with a pending change to the given action,
+     * which is expected to render its row. Changes made meanwhile stay pending.
+     */
+    public void drainPending(Consumer<String> action) {
+        anyPending = false;
+        int total = count;
+        for (int id = 0; id < total; id++) {
+            if (pending[id >>> CHUNK_BITS].getAndSet(id & (CHUNK_SIZE - 1), 0) != 0) {
+                action.accept(codeOf(id));
+            }
+        }
+    }
+
+    /**
+     * Returns the current quantity as row text and remembers it as rendered,
+     * or null if no row holds the code.
+     */
+    public String render(String code) {
+        Integer id = ids.get(code);
+        if (id == null) {
+            return null;
+        }
+        long value = quantities[id >>> CHUNK_BITS].get(id & (CHUNK_SIZE - 1));
+        if (value == ABSENT) {
+            return null;
+        }
+        rendered[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)] = value;
+        return Long.toString(value);
+    }
+
+    @Override
+    public void put(int index, ArrayList<String> row) {
+        if (index == 0 || row == null || row.size() <= Math.max(codeColumn, quantityColumn)) {
+            remove(index);
+            return;
+        }
+        String code = row.get(codeColumn);
+        String previous = codeOfRow.put(index, code);
+        if (previous != null && !previous.equals(code)) {
+            forget(previous); // <- The item code itself was edited
+        }
+        int id = idOf(code);
+        long value = parseQuantity(row.get(quantityColumn));
+        AtomicLongArray chunk = quantities[id >>> CHUNK_BITS];
+        int slot = id & (CHUNK_SIZE - 1);
+        if (chunk.get(slot) == ABSENT || value != rendered[id >>> CHUNK_BITS][slot]) {
+            chunk.set(slot, value);
+            rendered[id >>> CHUNK_BITS][slot] = value;
+        }
+    }
+
+    @Override
+    public void remove(int index) {
+        String code = codeOfRow.remove(index);
+        if (code != null) {
+            forget(code);
+        }
+    }
+
+    @Override
+    public void rebuild(Map<Integer, ArrayList<String>> data) {
+        HashSet<String> before = new HashSet<>(codeOfRow.values());
+        codeOfRow.clear();
+        for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+        before.removeAll(codeOfRow.values());
+        for (String code : before) {
+            forget(code);
+        }
+    }
+
+    private void forget(String code) {
+        Integer id = ids.get(code);
+        if (id != null) {
+            quantities[id >>> CHUNK_BITS].set(id & (CHUNK_SIZE - 1), ABSENT);
+            rendered[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)] = ABSENT;
+        }
+    }
+
+    private int idOf(String code) {
+        Integer id = ids.get(code);
+        return id != null ? id : allocate(code);
+    }
+
+    private synchronized int allocate(String code) {
+        Integer existing = ids.get(code);
+        if (existing != null) {
+            return existing;
+        }
+        int id = codes.size();
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk == MAX_CHUNKS) {
+            throw new IllegalStateException("Too many item codes in stock ledger");
+        }
+        if (quantities[chunk] == null) {
+            quantities[chunk] = new AtomicLongArray(CHUNK_SIZE);
+            pending[chunk] = new AtomicIntegerArray(CHUNK_SIZE);
+            rendered[chunk] = new long[CHUNK_SIZE];
+        }
+        quantities[chunk].set(id & (CHUNK_SIZE - 1), ABSENT);
+        rendered[chunk][id & (CHUNK_SIZE - 1)] = ABSENT;
+        codes.add(code);
+        count = codes.size();
+        ids.put(code, id); // <- Publishes the slot to lock-free readers
+        return id;
+    }
+
+    private synchronized String codeOf(int id) {
+        return codes.get(id);
+    }
+
+    private static long parseQuantity(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Treating non-numeric quantity as 0: " + value);
+            return 0;
+        }
+    }
+}
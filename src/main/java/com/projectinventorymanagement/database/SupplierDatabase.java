@@ -1,36 +1,43 @@
 package com.projectinventorymanagement.database;
 
+import com.projectinventorymanagement.utils.WriteBehindFlusher;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class SupplierDatabase extends DatabaseBase {
-    
+    private final HashIndex byCode;
+    private final HashIndex byName;
+    private final HashIndex byItem; // <- (Supplier Code, Item Code) identifies one row
+
     public SupplierDatabase() {
         super("supplier");
+        foldDuplicates();
+        byItem = createIndex("supplier.item", true, 0, 2);
+        byCode = createIndex("supplier.code", false, 0); // <- One row per supplier and item
+        byName = createIndex("supplier.name", false, 1);
     }
 
-    // Add a new supplier
+    /**
+     * Adds a supplier with one row per item it provides, in the layout of
+     * supplier.txt. A row for an item the supplier already has merges its
+     * quantity into that row (see appendEntries()).
+     */
     public void addSupplier(SupplierEntry supplier) {
-        ArrayList<String> entry = convertToEntryFormat(supplier);
-        int index = boundList.size() + 1;
-        addEntry(index, entry);
+        appendEntries(convertToEntryFormat(supplier));
     }
 
-    private ArrayList<String> convertToEntryFormat(SupplierEntry supplier) {
-        ArrayList<String> entry = new ArrayList<>();
-        entry.add(supplier.getSupplierCode());
-        entry.add(supplier.getSupplierName());
-        entry.add(String.valueOf(supplier.isActive()));
-
-        // Convert item list to a single string format
-        StringBuilder itemsString = new StringBuilder();
+    // One (Supplier Code, Supplier Name, Item Code, Quantity, isActive) row per item
+    private List<ArrayList<String>> convertToEntryFormat(SupplierEntry supplier) {
+        List<ArrayList<String>> entries = new ArrayList<>();
         for (ItemData item : supplier.getItemsProvided()) {
-            itemsString.append(item.getItemCode()).append(":").append(item.getQuantity()).append(";");
+            entries.add(new ArrayList<>(List.of(supplier.getSupplierCode(), supplier.getSupplierName(),
+                    item.getItemCode(), String.valueOf(item.getQuantity()), String.valueOf(supplier.isActive()))));
         }
-        entry.add(itemsString.toString());
-
-        return entry;
+        return entries;
     }
 
     // Retrieves Supplier Names
@@ -46,22 +53,14 @@ public class SupplierDatabase extends DatabaseBase {
 
     // Retrieves Supplier Code via Supplier Name
     public String getCodeByName(String supplierName) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(1).equals(supplierName)) {
-                return row.get(0);
-            }
-        }
-        return null;
+        ArrayList<String> row = findEntry(byName, supplierName);
+        return row == null ? null : row.get(0);
     }
 
     // Retrieves Supplier Name via Supplier Code
     public String getNameByCode(String supplierCode) {
-        for (ArrayList<String> row : getEntries().values()) {
-            if (!row.isEmpty() && row.get(0).equals(supplierCode)) {
-                return row.get(1);
-            }
-        }
-        return null;
+        ArrayList<String> row = findEntry(byCode, supplierCode);
+        return row == null ? null : row.get(1);
     }
 
         /**
@@ -75,19 +74,105 @@ public class SupplierDatabase extends DatabaseBase {
      * If no record exists, it creates a new record.
      */
     public void updateSupplierReceivedItems(String supplierCode, String itemCode, int quantity) {
-        
-        for (Map.Entry<Integer, ArrayList<String>> entry : getEntries().entrySet()) { // <- Iterate over all entries in the supplier database.
+        String supplierName = getNameByCode(supplierCode);
+        // Merges into the existing row for this supplier and item, or appends it
+        appendEntries(List.of(new ArrayList<>(List.of(supplierCode,
+                supplierName == null ? supplierCode : supplierName, itemCode, String.valueOf(quantity), "true"))));
+    }
+
+    /**
+     * Sets the quantity a supplier has delivered of an item, creating the row
+     * if there is none.
+     */
+    public void setReceivedQuantity(String supplierCode, String itemCode, int quantity) {
+        if (!modifyEntry(byItem, row -> {
+            row.set(3, String.valueOf(quantity));
+            return row;
+        }, supplierCode, itemCode)) {
+            updateSupplierReceivedItems(supplierCode, itemCode, quantity);
+        }
+    }
+
+    /**
+     * Adds a supplier row, or merges its quantity into the existing row for the
+     * same supplier and item so (Supplier Code, Item Code) stays unique.
+     */
+    @Override
+    public void addEntry(int index, ArrayList<String> entry) {
+        if (byItem == null || entry.size() <= 3 || index == 0) {
+            super.addEntry(index, entry); // <- Header, or still loading
+            return;
+        }
+        mergeEntry(() -> {
+            int existing = byItem.get(entry.get(0), entry.get(2));
+            return existing == index ? -1 : existing; // <- Storing the row at its own index replaces it
+        }, row -> addQuantity(row, entry), index, entry);
+    }
+
+    /**
+     * Appends supplier rows, merging each into the existing row for the same
+     * supplier and item like addEntry().
+     */
+    @Override
+    public int[] appendEntries(List<ArrayList<String>> entries) {
+        if (byItem == null) {
+            return super.appendEntries(entries);
+        }
+        int[] stored = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            ArrayList<String> entry = entries.get(i);
+            stored[i] = entry.size() <= 3
+                    ? super.appendEntries(List.of(entry))[0]
+                    : mergeEntry(() -> byItem.get(entry.get(0), entry.get(2)), row -> addQuantity(row, entry), -1,
+                            entry);
+        }
+        return stored;
+    }
+
+    private static ArrayList<String> addQuantity(ArrayList<String> row, ArrayList<String> entry) {
+        row.set(3, String.valueOf(parseQuantity(row.get(3)) + parseQuantity(entry.get(3))));
+        return row;
+    }
+
+    /**
+     * Folds rows that repeat a (Supplier Code, Item Code) pair into the first such
+     * row, summing their quantities, and checkpoints the result. Files written
+     * since merge-on-write have no duplicates, so this is a no-op after the first run.
+     */
+    private void foldDuplicates() {
+        HashMap<String, Integer> canonical = new HashMap<>();
+        List<Integer> duplicates = new ArrayList<>();
+        for (Map.Entry<Integer, ArrayList<String>> entry : new TreeMap<>(getEntries()).entrySet()) {
             ArrayList<String> row = entry.getValue();
-            
-            if (!row.isEmpty() && row.get(0).equals(supplierCode) && row.get(2).equals(itemCode)) { // <- Check if this row matches the given supplier and item code.
-                
-                int currentQuantity = Integer.parseInt(row.get(3)); // <- Parse current quantity and add the new quantity.
-                row.set(3, String.valueOf(currentQuantity + quantity));
-                
-                updateEntry(entry.getKey(), row); // <- Update the row using the integer row index. Since format is HashMap<Integer(Row), <ArrayList<String>>.
-                saveData();
-                return;
+            if (entry.getKey() == 0 || row.size() <= 3) {
+                continue;
             }
+            Integer first = canonical.putIfAbsent(row.get(0) + "\u0000" + row.get(2), entry.getKey());
+            if (first != null) {
+                modifyEntry(first, kept -> {
+                    kept.set(3, String.valueOf(parseQuantity(kept.get(3)) + parseQuantity(row.get(3))));
+                    return kept;
+                });
+                duplicates.add(entry.getKey());
+            }
+        }
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        for (int index : duplicates) {
+            deleteEntry(index);
+        }
+        System.out.println("Merged " + duplicates.size() + " duplicate supplier rows");
+        saveData();
+        WriteBehindFlusher.flushAll(); // <- Renumber densely right away, the GUI addresses rows by position
+    }
+
+    private static int parseQuantity(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Treating non-numeric quantity as 0: " + value);
+            return 0;
         }
     }
 
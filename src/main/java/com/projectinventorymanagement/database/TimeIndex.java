@@ -0,0 +1,157 @@
+package com.projectinventorymanagement.database;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the rows of a table ordered by a "yyyy-MM-dd HH:mm:ss" column, as two
+ * parallel primitive arrays (epoch seconds, row index) sorted by time. Range
+ * queries are a binary search plus a walk over the k matching rows, so the
+ * timestamps are parsed once when a row is indexed instead of on every report.
+ *
+ * Rows whose column is missing or does not parse are left out, as the reports
+ * skipped them anyway.
+ */
+public class TimeIndex implements RowIndex {
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final int column;
+    private long[] epochs = new long[16];
+    private int[] rows = new int[16];
+    private int size;
+    private final HashMap<Integer, Long> epochOfRow = new HashMap<>();
+
+    public TimeIndex(int column) {
+        this.column = column;
+    }
+
+    /**
+     * Returns the row indexes whose time lies in [from, to), oldest first.
+     */
+    public int[] range(LocalDateTime from, LocalDateTime to) {
+        int start = lowerBound(from.toEpochSecond(ZoneOffset.UTC));
+        int end = lowerBound(to.toEpochSecond(ZoneOffset.UTC));
+        return start >= end ? new int[0] : Arrays.copyOfRange(rows, start, end);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void put(int index, ArrayList<String> row) {
+        remove(index);
+        if (index == 0 || row == null || row.size() <= column) {
+            return;
+        }
+        Long epoch = parse(row.get(column));
+        if (epoch == null) {
+            return;
+        }
+        // Transactions are mostly recorded in time order, so this is usually an append
+        int position = upperBound(epoch);
+        if (size == epochs.length) {
+            epochs = Arrays.copyOf(epochs, size * 2);
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        System.arraycopy(epochs, position, epochs, position + 1, size - position);
+        System.arraycopy(rows, position, rows, position + 1, size - position);
+        epochs[position] = epoch;
+        rows[position] = index;
+        size++;
+        epochOfRow.put(index, epoch);
+    }
+
+    @Override
+    public void remove(int index) {
+        Long epoch = epochOfRow.remove(index);
+        if (epoch == null) {
+            return;
+        }
+        for (int position = lowerBound(epoch); position < size && epochs[position] == epoch; position++) {
+            if (rows[position] == index) {
+                System.arraycopy(epochs, position + 1, epochs, position, size - position - 1);
+                System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+                size--;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void rebuild(Map<Integer, ArrayList<String>> data) {
+        epochOfRow.clear();
+        long[] times = new long[data.size()];
+        int[] indexes = new int[data.size()];
+        int count = 0;
+        for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+            ArrayList<String> row = entry.getValue();
+            if (entry.getKey() == 0 || row == null || row.size() <= column) {
+                continue;
+            }
+            Long epoch = parse(row.get(column));
+            if (epoch != null) {
+                epochOfRow.put(entry.getKey(), epoch);
+                times[count] = epoch;
+                indexes[count++] = entry.getKey();
+            }
+        }
+        // Sort once by (epoch, row) instead of inserting one by one
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> times[a] != times[b] ? Long.compare(times[a], times[b])
+                : Integer.compare(indexes[a], indexes[b]));
+        epochs = new long[Math.max(16, count)];
+        rows = new int[epochs.length];
+        for (int i = 0; i < count; i++) {
+            epochs[i] = times[order[i]];
+            rows[i] = indexes[order[i]];
+        }
+        size = count;
+    }
+
+    // First position whose epoch is >= the given one
+    private int lowerBound(long epoch) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochs[middle] < epoch) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // First position whose epoch is > the given one
+    private int upperBound(long epoch) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochs[middle] <= epoch) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static Long parse(String value) {
+        try {
+            return LocalDateTime.parse(value.trim(), formatter).toEpochSecond(ZoneOffset.UTC);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
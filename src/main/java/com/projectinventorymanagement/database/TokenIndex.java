@@ -0,0 +1,179 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Inverted index from the lower-cased words of every cell to the rows that
+ * contain them. Words are runs of letters and digits, so "2025-03-20" is indexed
+ * as "2025", "03" and "20". Postings are found by hash; the distinct words are
+ * also kept sorted, which lets a query word match every indexed word it is a
+ * prefix of.
+ *
+ * A query matches the rows that contain a word starting with each of its words,
+ * e.g. "face sh" finds "Face Shield". TrigramIndex builds substring search on
+ * top of the same words.
+ */
+public class TokenIndex implements RowIndex {
+    static final char TERMINATOR = '\u0000'; // <- Follows every cell in the row text
+
+    private final HashMap<String, Postings> postings = new HashMap<>();
+    private final TreeSet<String> words = new TreeSet<>(); // <- Only changes when a word appears or disappears
+    private final HashMap<Integer, String> textOfRow = new HashMap<>(); // <- Cells lower-cased, each followed by TERMINATOR
+
+    /**
+     * Returns the rows matching every word of the query as a bitmap of row indexes,
+     * or null if the query has no words (everything matches).
+     */
+    public BitSet search(String query) {
+        BitSet result = null;
+        for (String word : tokenize(query == null ? null : query.toLowerCase())) {
+            BitSet matches = new BitSet();
+            // Every indexed word from word up to word + MAX_VALUE starts with it
+            for (String indexed : words.subSet(word, word + Character.MAX_VALUE)) {
+                postings.get(indexed).addTo(matches);
+            }
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(int index, ArrayList<String> row) {
+        remove(index);
+        if (index == 0 || row == null) {
+            return;
+        }
+        String text = textOf(row);
+        textOfRow.put(index, text);
+        for (String token : tokenize(text)) {
+            postings.computeIfAbsent(token, k -> {
+                words.add(k);
+                wordAdded(k);
+                return new Postings();
+            }).add(index);
+        }
+    }
+
+    @Override
+    public void remove(int index) {
+        String text = textOfRow.remove(index);
+        if (text == null) {
+            return;
+        }
+        for (String token : tokenize(text)) {
+            Postings rows = postings.get(token);
+            rows.remove(index);
+            if (rows.isEmpty()) {
+                postings.remove(token);
+                words.remove(token);
+                wordRemoved(token);
+            }
+        }
+    }
+
+    @Override
+    public void rebuild(Map<Integer, ArrayList<String>> data) {
+        clear();
+        // Ascending row order keeps every posting insert an append
+        int[] rows = data.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int row : rows) {
+            put(row, data.get(row));
+        }
+    }
+
+    /**
+     * Called when a word occurs in its first row, for subclasses that index the words.
+     */
+    protected void wordAdded(String word) {
+    }
+
+    /**
+     * Called when the last row containing a word is removed.
+     */
+    protected void wordRemoved(String word) {
+    }
+
+    void clear() {
+        postings.clear();
+        words.clear();
+        textOfRow.clear();
+    }
+
+    Postings postingsOf(String word) {
+        return postings.get(word);
+    }
+
+    Map<String, Postings> postings() {
+        return postings;
+    }
+
+    // Restores a word read back from a saved index
+    void putPostings(String word, Postings rows) {
+        postings.put(word, rows);
+        words.add(word);
+        wordAdded(word);
+    }
+
+    // Restores the text of a row whose words are already in the postings
+    void putText(int index, ArrayList<String> row) {
+        if (index != 0 && row != null) {
+            textOfRow.put(index, textOf(row));
+        }
+    }
+
+    String textOf(int index) {
+        return textOfRow.get(index);
+    }
+
+    Iterable<Map.Entry<Integer, String>> texts() {
+        return textOfRow.entrySet();
+    }
+
+    static String textOf(ArrayList<String> row) {
+        StringBuilder text = new StringBuilder();
+        for (String cell : row) {
+            if (cell != null) {
+                text.append(cell.toLowerCase());
+            }
+            text.append(TERMINATOR);
+        }
+        return text.toString();
+    }
+
+    static List<String> tokenize(String text) {
+        return tokenize(text, new ArrayList<>());
+    }
+
+    // Adds the distinct words of the (lower-cased) text to tokens (rows have few words, so a list is enough)
+    static List<String> tokenize(String text, List<String> tokens) {
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = text.substring(start, i);
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
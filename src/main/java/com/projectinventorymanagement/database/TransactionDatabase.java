@@ -1,22 +1,25 @@
 package com.projectinventorymanagement.database;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.projectinventorymanagement.models.Item;
 import com.projectinventorymanagement.models.Transaction;
 
 public class TransactionDatabase extends DatabaseBase {
+    private final TimeIndex byTime;
 
     public TransactionDatabase() {
         super("transactions");
+        byTime = addIndex(new TimeIndex(5)); // <- Date-Time column
     }
 
     public void addTransaction(String transactionID, Item item, String code, String details, int quantity) {
         ArrayList<String> entry = convertToEntryFormat(transactionID, item.getItemCode(), code, details, quantity,
                 null);
-        int index = boundList.size() + 1;
-        addEntry(index, entry);
+        appendEntries(List.of(entry)); // <- After the last row, even when deletes left holes
     }
 
     private ArrayList<String> convertToEntryFormat(String transactionID, String itemCode, String code, String details,
@@ -35,14 +38,37 @@ public class TransactionDatabase extends DatabaseBase {
 
     public List<Transaction> getTransactions() {
         List<Transaction> transactions = new ArrayList<>();
-        for (ArrayList<String> entry : boundList.values()) {
+        for (ArrayList<String> entry : getEntries().values()) {
             transactions.add(convertToTransaction(entry));
         }
         return transactions;
     }
 
+    /**
+     * Returns the transactions whose Date-Time lies in [from, to), oldest first.
+     * Rows without a valid Date-Time are not included.
+     */
+    public List<ArrayList<String>> rangeQuery(LocalDateTime from, LocalDateTime to) {
+        return readRows(rows -> {
+            List<ArrayList<String>> result = new ArrayList<>();
+            for (int row : byTime.range(from, to)) {
+                result.add(rows.get(row));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Picks up transactions recorded since the last read, parsing only the newly
+     * appended lines unless the file was rewritten (see DatabaseBase.reloadTail).
+     */
     public void reloadData() {
-        loadData(); // This is from DatabaseBase (your parent class)
+        reloadTail();
+    }
+
+    // reloadData() on a background thread, for the GUI
+    public CompletableFuture<Void> reloadDataAsync() {
+        return reloadTailAsync();
     }
 
     private Transaction convertToTransaction(ArrayList<String> entry) {
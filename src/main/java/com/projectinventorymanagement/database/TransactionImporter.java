@@ -0,0 +1,268 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.database.TransactionProcessor.Type;
+import com.projectinventorymanagement.utils.IdAllocator;
+import com.projectinventorymanagement.utils.UnitOfWorkJournal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Imports transaction manifests, e.g. the warehouse's daily distribution
+ * lists, in the layout of transactions.txt:
+ * "TransactionID,Item Code,Code,Details,Quantity,Date-Time".
+ * The TransactionID column is ignored (every line gets a new ID) and an empty
+ * Date-Time means the time of the import. A header line is skipped.
+ *
+ * The file is streamed: lines are read and validated against the item,
+ * hospital and supplier indexes one batch at a time, and each batch is
+ * applied as one unit of work, so the tables are written and the journal
+ * forced once per batch. Within a batch the lines are applied in file order;
+ * a distribution that exceeds the stock at that point is rejected on its own
+ * and the rest of the batch goes through. Rejections are handed to the caller
+ * as they occur instead of being collected.
+ */
+public class TransactionImporter {
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * A line that was not imported.
+     *
+     * @param lineNumber 1-based, counting the header.
+     */
+    public record Rejection(long lineNumber, String line, String reason) {
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public record Report(long lines, long imported, long rejected, int batches, long millis) {
+
+        public double linesPerSecond() {
+            return millis == 0 ? lines * 1000.0 : lines * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines: %d imported, %d rejected, %d batches in %d ms (%.0f lines/s)", lines,
+                    imported, rejected, batches, millis, linesPerSecond());
+        }
+    }
+
+    // A validated line, waiting for its batch
+    record Movement(long lineNumber, String line, String itemCode, String entityCode, Type type,
+            int quantity, String dateTime) {
+    }
+
+    private final TransactionDatabase transactionDatabase;
+    private final ItemDatabase itemDatabase;
+    private final HospitalDatabase hospitalDatabase;
+    private final SupplierDatabase supplierDatabase;
+    private final IdAllocator transactionIdAllocator = IdAllocator.forName("transactions");
+    private final int batchSize;
+
+    public TransactionImporter(TransactionDatabase transactionDatabase, ItemDatabase itemDatabase,
+            HospitalDatabase hospitalDatabase, SupplierDatabase supplierDatabase, int batchSize) {
+        this.transactionDatabase = transactionDatabase;
+        this.itemDatabase = itemDatabase;
+        this.hospitalDatabase = hospitalDatabase;
+        this.supplierDatabase = supplierDatabase;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports a manifest file and writes the rejected lines to a CSV file
+     * "Line,Reason,Row" next to it (or nowhere if rejectsFile is null).
+     */
+    public Report importFile(File input, File rejectsFile) throws IOException {
+        return importFile(input, rejectsFile, this::importFrom);
+    }
+
+    // Reads manifest lines from a reader and reports rejections, like importFrom()
+    interface Source<R> {
+        R importFrom(Reader input, Consumer<Rejection> rejected) throws IOException;
+    }
+
+    // Runs an import of the input file and writes its rejections to rejectsFile
+    static <R> R importFile(File input, File rejectsFile, Source<R> source) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8);
+             Writer rejects = rejectsFile == null ? Writer.nullWriter()
+                     : new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rejectsFile),
+                             StandardCharsets.UTF_8))) {
+            rejects.write("Line,Reason,Row\n");
+            return source.importFrom(reader, rejection -> {
+                try {
+                    rejects.write(rejection.lineNumber() + "," + rejection.reason().replace(',', ';') + ","
+                            + rejection.line() + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Imports manifest lines from a reader.
+     *
+     * @param rejected Receives every line that was not imported: invalid lines as they
+     *                 are read, stock shortages when their batch is applied.
+     */
+    public Report importFrom(Reader input, Consumer<Rejection> rejected) throws IOException {
+        long start = System.nanoTime();
+        long lines = 0;
+        long imported = 0;
+        long rejectedCount = 0;
+        int batches = 0;
+        BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        List<Movement> batch = new ArrayList<>(batchSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines++;
+            if (line.isBlank() || (lines == 1 && line.startsWith("TransactionID"))) {
+                continue; // <- Header
+            }
+            Movement movement = parse(lines, line, rejected);
+            if (movement == null) {
+                rejectedCount++;
+                continue;
+            }
+            batch.add(movement);
+            if (batch.size() == batchSize) {
+                int applied = applyBatch(batch, rejected);
+                imported += applied;
+                rejectedCount += batch.size() - applied;
+                batches++;
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            int applied = applyBatch(batch, rejected);
+            imported += applied;
+            rejectedCount += batch.size() - applied;
+            batches++;
+        }
+        return new Report(lines, imported, rejectedCount, batches, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    ItemDatabase getItemDatabase() {
+        return itemDatabase;
+    }
+
+    // Validates one line against the indexes, or reports why it is rejected
+    Movement parse(long lineNumber, String line, Consumer<Rejection> rejected) {
+        String[] parts = line.split(",", -1);
+        if (parts.length < 5) {
+            rejected.accept(new Rejection(lineNumber, line, "Expected at least 5 columns"));
+            return null;
+        }
+        String itemCode = parts[1].trim();
+        String entityCode = parts[2].trim();
+        Type type = Type.fromLabel(parts[3].trim());
+        if (type == null) {
+            rejected.accept(new Rejection(lineNumber, line, "Unknown type: " + parts[3].trim()));
+            return null;
+        }
+        int quantity;
+        try {
+            quantity = Integer.parseInt(parts[4].trim());
+        } catch (NumberFormatException e) {
+            rejected.accept(new Rejection(lineNumber, line, "Invalid quantity: " + parts[4].trim()));
+            return null;
+        }
+        if (quantity <= 0) {
+            rejected.accept(new Rejection(lineNumber, line, "Quantity must be greater than zero"));
+            return null;
+        }
+        if (itemDatabase.getNameByCode(itemCode) == null) {
+            rejected.accept(new Rejection(lineNumber, line, "Unknown item: " + itemCode));
+            return null;
+        }
+        boolean known = type == Type.DISTRIBUTE ? hospitalDatabase.getRowIndexByCode(entityCode) >= 0
+                : supplierDatabase.getNameByCode(entityCode) != null;
+        if (!known) {
+            rejected.accept(new Rejection(lineNumber, line,
+                    "Unknown " + (type == Type.DISTRIBUTE ? "hospital" : "supplier") + ": " + entityCode));
+            return null;
+        }
+        String dateTime = parts.length > 5 ? parts[5].trim() : "";
+        if (!dateTime.isEmpty()) {
+            try {
+                LocalDateTime.parse(dateTime, formatter);
+            } catch (DateTimeParseException e) {
+                rejected.accept(new Rejection(lineNumber, line, "Invalid Date-Time: " + dateTime));
+                return null;
+            }
+        }
+        return new Movement(lineNumber, line, itemCode, entityCode, type, quantity, dateTime);
+    }
+
+    // Applies a batch as one unit of work and returns the number of lines imported
+    private int applyBatch(List<Movement> batch, Consumer<Rejection> rejected) {
+        return applyBatch(batch, rejected, _ -> {
+        });
+    }
+
+    // Like applyBatch(batch, rejected); settled sees each movement right after its stock moved or failed to,
+    // while the item locks are still held
+    int applyBatch(List<Movement> batch, Consumer<Rejection> rejected, Consumer<Movement> settled) {
+        Set<String> itemCodes = new LinkedHashSet<>();
+        for (Movement movement : batch) {
+            itemCodes.add(movement.itemCode());
+        }
+        List<Rejection> shortages = new ArrayList<>();
+        int[] imported = new int[1];
+        UnitOfWorkJournal.run(() -> itemDatabase.withItemLocks(itemCodes, () -> {
+            itemDatabase.joinUnitOfWork(); // <- See TransactionProcessor
+            String now = LocalDateTime.now().format(formatter);
+            List<ArrayList<String>> rows = new ArrayList<>();
+            Map<String, Map<String, Integer>> hospitalItems = new LinkedHashMap<>();
+            Map<String, Map<String, Integer>> supplierItems = new LinkedHashMap<>();
+            for (Movement movement : batch) {
+                int sign = movement.type() == Type.DISTRIBUTE ? -1 : 1;
+                boolean moved = itemDatabase.updateItemQuantity(movement.itemCode(), sign * movement.quantity());
+                settled.accept(movement);
+                if (!moved) {
+                    shortages.add(new Rejection(movement.lineNumber(), movement.line(), "Insufficient stock: "
+                            + itemDatabase.getItemQuantity(movement.itemCode()) + " boxes available"));
+                    continue;
+                }
+                rows.add(new ArrayList<>(List.of(String.valueOf(transactionIdAllocator.next()),
+                        movement.itemCode(), movement.entityCode(), movement.type().getLabel(),
+                        String.valueOf(movement.quantity()),
+                        movement.dateTime().isEmpty() ? now : movement.dateTime())));
+                (movement.type() == Type.DISTRIBUTE ? hospitalItems : supplierItems)
+                        .computeIfAbsent(movement.entityCode(), _ -> new LinkedHashMap<>())
+                        .merge(movement.itemCode(), movement.quantity(), Integer::sum);
+            }
+            itemDatabase.renderStock(itemCodes);
+            transactionDatabase.appendEntries(rows);
+            for (Map.Entry<String, Map<String, Integer>> hospital : hospitalItems.entrySet()) {
+                hospitalDatabase.addReceivedItems(hospital.getKey(), hospital.getValue()); // <- One change per hospital
+            }
+            for (Map.Entry<String, Map<String, Integer>> supplier : supplierItems.entrySet()) {
+                for (Map.Entry<String, Integer> item : supplier.getValue().entrySet()) {
+                    supplierDatabase.updateSupplierReceivedItems(supplier.getKey(), item.getKey(), item.getValue());
+                }
+            }
+            imported[0] = rows.size();
+            return true;
+        }));
+        shortages.forEach(rejected); // <- Outside the locks, the consumer may write to disk
+        return imported[0];
+    }
+}
@@ -0,0 +1,183 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.utils.IdAllocator;
+import com.projectinventorymanagement.utils.UnitOfWorkJournal;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves a basket of items to one hospital, or from one supplier, as a unit.
+ *
+ * Every line is validated and every item's stock checked before anything
+ * changes, with the locks of all items in the basket held, so either all
+ * lines go through or none do. The stock ledger, the hospital (or supplier)
+ * rows and one transaction row per line are then changed together as one
+ * unit of work: they go to the journal before any table log, so a crash
+ * leaves either all of them on disk or none (see UnitOfWorkJournal), and
+ * each table is written once per basket instead of once per line.
+ */
+public class TransactionProcessor {
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public enum Type {
+        DISTRIBUTE("Distribute"), // <- Stock goes out to a hospital
+        RECEIVE("Receive");       // <- Stock comes in from a supplier
+
+        private final String label;
+
+        Type(String label) {
+            this.label = label;
+        }
+
+        // As written in the Type column of transactions.txt
+        public String getLabel() {
+            return label;
+        }
+
+        // The type with the given label, ignoring case, or null
+        public static Type fromLabel(String label) {
+            for (Type type : values()) {
+                if (type.label.equalsIgnoreCase(label)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * One basket line: a number of boxes of one item.
+     */
+    public record Line(String itemCode, int quantity) {
+    }
+
+    /**
+     * The outcome of a basket. On failure nothing was changed.
+     *
+     * @param transactionIds One per line, in line order; empty on failure.
+     * @param shortages      Boxes missing per item code, when stock was insufficient.
+     * @param message        Why the basket was rejected, or null on success.
+     */
+    public record Result(boolean success, List<String> transactionIds, Map<String, Integer> shortages,
+            String message) {
+
+        static Result rejected(String message) {
+            return new Result(false, List.of(), Map.of(), message);
+        }
+    }
+
+    private final TransactionDatabase transactionDatabase;
+    private final ItemDatabase itemDatabase;
+    private final HospitalDatabase hospitalDatabase;
+    private final SupplierDatabase supplierDatabase;
+    private final IdAllocator transactionIdAllocator = IdAllocator.forName("transactions");
+
+    public TransactionProcessor(TransactionDatabase transactionDatabase, ItemDatabase itemDatabase,
+            HospitalDatabase hospitalDatabase, SupplierDatabase supplierDatabase) {
+        this.transactionDatabase = transactionDatabase;
+        this.itemDatabase = itemDatabase;
+        this.hospitalDatabase = hospitalDatabase;
+        this.supplierDatabase = supplierDatabase;
+    }
+
+    /**
+     * Applies every line of the basket, or none of them.
+     *
+     * @param type       Whether the basket is distributed or received.
+     * @param entityCode The hospital code (distribute) or supplier code (receive).
+     * @param lines      The items and quantities; an item may appear more than once.
+     */
+    public Result process(Type type, String entityCode, List<Line> lines) {
+        if (lines == null || lines.isEmpty()) {
+            return Result.rejected("The basket is empty.");
+        }
+        boolean known = type == Type.DISTRIBUTE ? hospitalDatabase.getRowIndexByCode(entityCode) >= 0
+                : supplierDatabase.getNameByCode(entityCode) != null;
+        if (!known) {
+            return Result.rejected("Unknown " + (type == Type.DISTRIBUTE ? "hospital" : "supplier") + ": " + entityCode);
+        }
+
+        // Total per item, so an item listed twice is checked against its stock once
+        LinkedHashMap<String, Integer> totals = new LinkedHashMap<>();
+        for (Line line : lines) {
+            if (line.quantity() <= 0) {
+                return Result.rejected("Quantity must be greater than zero: " + line.itemCode());
+            }
+            if (itemDatabase.getNameByCode(line.itemCode()) == null) {
+                return Result.rejected("Unknown item: " + line.itemCode());
+            }
+            try {
+                totals.merge(line.itemCode(), line.quantity(), Math::addExact);
+            } catch (ArithmeticException e) { // <- The item's lines add up past int
+                return Result.rejected("Quantity too large: " + line.itemCode());
+            }
+        }
+
+        int sign = type == Type.DISTRIBUTE ? -1 : 1;
+        LinkedHashMap<String, Integer> shortages = new LinkedHashMap<>();
+        List<String> transactionIds = new ArrayList<>();
+        boolean applied = UnitOfWorkJournal.run(() -> itemDatabase.withItemLocks(totals.keySet(), () -> {
+            if (type == Type.DISTRIBUTE) {
+                for (Map.Entry<String, Integer> total : totals.entrySet()) {
+                    int available = itemDatabase.getItemQuantity(total.getKey());
+                    if (available < total.getValue()) {
+                        shortages.put(total.getKey(), total.getValue() - available);
+                    }
+                }
+                if (!shortages.isEmpty()) {
+                    return false;
+                }
+            }
+            itemDatabase.joinUnitOfWork(); // <- Rows rendered by other threads from here on wait for the unit
+            if (!moveStock(totals, sign, shortages)) {
+                return false;
+            }
+            itemDatabase.renderStock(totals.keySet());
+
+            String dateTime = LocalDateTime.now().format(formatter);
+            List<ArrayList<String>> rows = new ArrayList<>();
+            for (Line line : lines) {
+                String transactionID = String.valueOf(transactionIdAllocator.next());
+                transactionIds.add(transactionID);
+                rows.add(new ArrayList<>(List.of(transactionID, line.itemCode(), entityCode, type.getLabel(),
+                        String.valueOf(line.quantity()), dateTime)));
+            }
+            transactionDatabase.appendEntries(rows);
+            if (type == Type.DISTRIBUTE) {
+                hospitalDatabase.addReceivedItems(entityCode, totals);
+            } else {
+                for (Map.Entry<String, Integer> total : totals.entrySet()) {
+                    supplierDatabase.updateSupplierReceivedItems(entityCode, total.getKey(), total.getValue());
+                }
+            }
+            return true;
+        }));
+        if (!applied) {
+            return new Result(false, List.of(), Collections.unmodifiableMap(shortages), "Insufficient stock.");
+        }
+        return new Result(true, Collections.unmodifiableList(transactionIds), Map.of(), null);
+    }
+
+    // Changes every item's stock, or restores the ones already changed and reports the item that failed.
+    // The stock was checked under the item locks, so this only fails if a change bypassed them.
+    private boolean moveStock(Map<String, Integer> totals, int sign, Map<String, Integer> shortages) {
+        List<Map.Entry<String, Integer>> moved = new ArrayList<>();
+        for (Map.Entry<String, Integer> total : totals.entrySet()) {
+            if (!itemDatabase.updateItemQuantity(total.getKey(), sign * total.getValue())) {
+                for (Map.Entry<String, Integer> undo : moved) {
+                    itemDatabase.updateItemQuantity(undo.getKey(), -sign * undo.getValue());
+                }
+                shortages.put(total.getKey(), total.getValue() - itemDatabase.getItemQuantity(total.getKey()));
+                return false;
+            }
+            moved.add(total);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,292 @@
+package com.projectinventorymanagement.database;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Substring search over every cell of a table, on top of the words of a
+ * TokenIndex.
+ *
+ * Every 3-character window starting inside an indexed word (followed by two
+ * terminators) maps to the words that contain it, so every substring of up to
+ * three characters of a word is the prefix of some window. Each word of a query
+ * is looked up in that vocabulary: one or two characters exactly from the
+ * windows it prefixes, longer ones by intersecting the words of its trigrams and
+ * keeping those that contain it. The rows of the words found, intersected over
+ * the words of the query, are the candidates. Unless the query is a single word
+ * they are verified against the row text, so "P1-0" matches only where it is
+ * written like that.
+ *
+ * The word postings are saved to data/<name>.tri together with a fingerprint of
+ * the rows they describe, and loaded instead of rebuilt when the table still matches.
+ */
+public class TrigramIndex extends TokenIndex {
+    private static final String DATA_PATH = "data/";
+    private static final int MAGIC = 0x50505447; // <- "PPTG"
+    private static final int VERSION = 2; // <- 1 held the trigrams of whole cells
+
+    private final File file;
+    private final HashMap<String, Set<String>> wordsOfGram = new HashMap<>();
+    private final TreeSet<String> grams = new TreeSet<>(); // <- Only changes when a gram appears or disappears
+    private volatile boolean modified; // <- Changed since it was last encoded or loaded
+
+    /**
+     * @param filename The base file name of the table (without extension).
+     */
+    public TrigramIndex(String filename) {
+        this.file = new File(DATA_PATH + filename + ".tri");
+    }
+
+    /**
+     * Returns the rows where some cell contains the query (ignoring case), or
+     * null if the query is empty (everything matches).
+     */
+    @Override
+    public BitSet search(String query) {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+        String needle = query.toLowerCase();
+        List<String> queryWords = tokenize(needle);
+        if (queryWords.isEmpty()) {
+            return scan(texts(), needle); // <- Only spaces and punctuation, nothing to look up
+        }
+        BitSet candidates = null;
+        for (String queryWord : queryWords) {
+            BitSet rows = new BitSet();
+            for (String word : wordsContaining(queryWord)) {
+                postingsOf(word).addTo(rows);
+            }
+            if (candidates == null) {
+                candidates = rows;
+            } else {
+                candidates.and(rows);
+            }
+            if (candidates.isEmpty()) {
+                return candidates;
+            }
+        }
+        if (queryWords.size() == 1 && queryWords.get(0).length() == needle.length()) {
+            return candidates; // <- A word containing the query is an exact occurrence
+        }
+        for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+            if (!textOf(row).contains(needle)) {
+                candidates.clear(row);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Substring search without an index, for when there is none (yet).
+     */
+    public static BitSet scan(Map<Integer, ArrayList<String>> data, String query) {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+        String needle = query.toLowerCase();
+        BitSet result = new BitSet();
+        for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+            if (entry.getKey() != 0 && entry.getValue() != null && textOf(entry.getValue()).contains(needle)) {
+                result.set(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private static BitSet scan(Iterable<Map.Entry<Integer, String>> texts, String needle) {
+        BitSet result = new BitSet();
+        for (Map.Entry<Integer, String> entry : texts) {
+            if (entry.getValue().contains(needle)) {
+                result.set(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    // The indexed words that contain the query word
+    private Set<String> wordsContaining(String queryWord) {
+        Set<String> result = new HashSet<>();
+        if (queryWord.length() < 3) {
+            // Every window starting with the query word is an exact occurrence
+            for (String gram : grams.subSet(queryWord, queryWord + Character.MAX_VALUE)) {
+                result.addAll(wordsOfGram.get(gram));
+            }
+            return result;
+        }
+        List<Set<String>> sets = new ArrayList<>();
+        for (int i = 0; i + 3 <= queryWord.length(); i++) {
+            Set<String> words = wordsOfGram.get(queryWord.substring(i, i + 3));
+            if (words == null) {
+                return result; // <- A trigram that occurs in no word
+            }
+            sets.add(words);
+        }
+        sets.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        for (String word : sets.get(0)) {
+            if (word.contains(queryWord)) { // <- Covers the other trigrams, in order
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(int index, ArrayList<String> row) {
+        super.put(index, row);
+        modified = true;
+    }
+
+    @Override
+    public void remove(int index) {
+        super.remove(index);
+        modified = true;
+    }
+
+    @Override
+    protected void wordAdded(String word) {
+        for (String gram : gramsOf(word)) {
+            wordsOfGram.computeIfAbsent(gram, k -> {
+                grams.add(k);
+                return new HashSet<>();
+            }).add(word);
+        }
+    }
+
+    @Override
+    protected void wordRemoved(String word) {
+        for (String gram : gramsOf(word)) {
+            Set<String> words = wordsOfGram.get(gram);
+            words.remove(word);
+            if (words.isEmpty()) {
+                wordsOfGram.remove(gram);
+                grams.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Loads the saved index if it was saved for exactly these rows, otherwise
+     * indexes every row again. Does not save; see encode().
+     */
+    @Override
+    public void rebuild(Map<Integer, ArrayList<String>> data) {
+        clear();
+        long fingerprint = fingerprint(data);
+        if (load(fingerprint)) {
+            for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+                putText(entry.getKey(), entry.getValue());
+            }
+            modified = false;
+            return;
+        }
+        super.rebuild(data);
+    }
+
+    /**
+     * Encodes the index for write(), or returns null if it did not change since
+     * it was last written. The index and the rows must be held still meanwhile
+     * (the table's read lock); the slow part, write(), needs no lock.
+     *
+     * @param data The rows the index currently describes.
+     */
+    public byte[] encode(Map<Integer, ArrayList<String>> data) {
+        if (!modified && file.exists()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint(data));
+            out.writeInt(postings().size());
+            for (Map.Entry<String, Postings> entry : postings().entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // <- Not thrown by a byte array
+        }
+        modified = false;
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Atomically replaces the index file with what encode() returned.
+     * Synchronized because every write goes through the same temporary file.
+     */
+    public synchronized void write(byte[] encoded) {
+        File temp = new File(file.getPath() + ".tmp");
+        file.getParentFile().mkdirs();
+        try {
+            Files.write(temp.toPath(), encoded);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            modified = true; // <- Try again at the next checkpoint
+            System.err.println("Error writing search index: " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    private boolean load(long fingerprint) {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint) {
+                return false; // <- Saved for other data or by another version, rebuild
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String word = in.readUTF();
+                putPostings(word, Postings.read(in));
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable search index: " + file.getName());
+            clear();
+            return false;
+        }
+    }
+
+    @Override
+    void clear() {
+        super.clear();
+        wordsOfGram.clear();
+        grams.clear();
+    }
+
+    // The distinct windows of a word followed by two terminators
+    private static Set<String> gramsOf(String word) {
+        Set<String> result = new HashSet<>();
+        String padded = word + TERMINATOR + TERMINATOR;
+        for (int i = 0; i < word.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    // Order-independent hash of every row index and row content
+    private static long fingerprint(Map<Integer, ArrayList<String>> data) {
+        long sum = data.size();
+        for (Map.Entry<Integer, ArrayList<String>> entry : data.entrySet()) {
+            long hash = entry.getKey() * 0x9E3779B97F4A7C15L
+                    ^ (entry.getValue() == null ? 0 : entry.getValue().hashCode());
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            sum += hash;
+        }
+        return sum;
+    }
+}
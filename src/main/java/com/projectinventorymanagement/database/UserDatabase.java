@@ -4,6 +4,7 @@ import com.projectinventorymanagement.models.User;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class UserDatabase extends DatabaseBase {
@@ -20,14 +21,15 @@ public class UserDatabase extends DatabaseBase {
 
     // Loads users from the boundList loaded by DatabaseBase
     private void loadUsersFromBoundList() {
-        if (boundList == null || boundList.isEmpty()) {
+        Map<Integer, ArrayList<String>> entries = getEntries();
+        if (entries.isEmpty()) {
             System.out.println("No existing user data found.");
             return;
         }
     
         boolean isFirstRow = true; // <- Track first row (header)
     
-        for (Map.Entry<Integer, ArrayList<String>> entry : boundList.entrySet()) {
+        for (Map.Entry<Integer, ArrayList<String>> entry : entries.entrySet()) {
             ArrayList<String> row = entry.getValue();
     
             // Skip the header row
@@ -69,9 +71,7 @@ public class UserDatabase extends DatabaseBase {
             user.getPhone(),
             String.valueOf(user.isActive())
         ));
-        // Use the next available index as the row key
-        int newRowIndex = getEntries().size();
-        addEntry(newRowIndex, userRow);
+        appendEntries(List.of(userRow)); // <- After the last row, even when deletes left holes
         return true;
     }
 
@@ -101,8 +101,8 @@ public class UserDatabase extends DatabaseBase {
         usersByID.put(Integer.toString(updatedUser.getUserID()), updatedUser);
 
         // Update the user in boundList by iterating over its entries
-        for (Map.Entry<Integer, ArrayList<String>> entry : boundList.entrySet()) {
-            ArrayList<String> row = entry.getValue();
+        for (Map.Entry<Integer, ArrayList<String>> entry : getEntries().entrySet()) {
+            ArrayList<String> row = new ArrayList<>(entry.getValue()); // <- Snapshot rows are read-only
             if (row.size() > 2 && row.get(2).equals(username)) {
                 row.set(1, updatedUser.getName());
                 row.set(2, updatedUser.getUsername());
@@ -111,10 +111,10 @@ public class UserDatabase extends DatabaseBase {
                 row.set(5, updatedUser.getEmail());
                 row.set(6, updatedUser.getPhone());
                 row.set(7, String.valueOf(updatedUser.isActive()));
+                updateEntry(entry.getKey(), row);
                 break;
             }
         }
-        saveData();
         return true;
     }
 
@@ -123,9 +123,16 @@ public class UserDatabase extends DatabaseBase {
             return false;
         }
         usersByUsername.remove(username);
-        // Remove from boundList: iterate over entries and remove matching username
-        boundList.entrySet().removeIf(entry -> entry.getValue().size() > 2 && entry.getValue().get(2).equals(username));
-        saveData();
+        // Remove from boundList: find the rows with a matching username and delete them
+        ArrayList<Integer> matches = new ArrayList<>();
+        for (Map.Entry<Integer, ArrayList<String>> entry : getEntries().entrySet()) {
+            if (entry.getValue().size() > 2 && entry.getValue().get(2).equals(username)) {
+                matches.add(entry.getKey());
+            }
+        }
+        for (int index : matches) {
+            deleteEntry(index);
+        }
         return true;
     }
 
@@ -7,7 +7,8 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class DynamicAdd {
     private final DatabaseBase database;
@@ -38,7 +39,7 @@ public class DynamicAdd {
         layout.setPadding(new javafx.geometry.Insets(10));
 
         // Get the first row to determine the number of fields
-        HashMap<Integer, ArrayList<String>> entries = database.getEntries();
+        Map<Integer, ArrayList<String>> entries = database.getEntries();
         if (entries.isEmpty()) {
             showAlert("Error", "No structure found in database.");
             return;
@@ -69,9 +70,9 @@ public class DynamicAdd {
             }
 
             if (isValid) {
-                database.addEntry(database.getEntries().size(), newEntry);
-                database.saveData();
-                popupStage.close();
+                database.appendEntries(List.of(newEntry)); // <- size() is taken when a delete left a hole
+                // Close once the entry is on disk, so a failed save is reported while the form is still open
+                FxAsync.whenDone(layout, database.whenWritten(), _ -> popupStage.close());
             }
         });
 
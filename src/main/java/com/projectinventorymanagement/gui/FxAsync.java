@@ -0,0 +1,62 @@
+package com.projectinventorymanagement.gui;
+
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.Pane;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Hands the results of background database work (see BackgroundIO) back to
+ * the JavaFX thread, showing a progress indicator while it runs.
+ */
+final class FxAsync {
+
+    private FxAsync() {
+    }
+
+    /**
+     * Runs onDone on the JavaFX thread with the result of the work, or shows
+     * an error alert if it failed.
+     */
+    static <T> void whenDone(CompletableFuture<T> work, Consumer<T> onDone) {
+        whenDone(null, work, onDone);
+    }
+
+    /**
+     * Like {@link #whenDone(CompletableFuture, Consumer)}, with a spinning
+     * progress indicator added to the given pane until the work is done.
+     * @param host Where to show the indicator, or null for none.
+     */
+    static <T> void whenDone(Pane host, CompletableFuture<T> work, Consumer<T> onDone) {
+        ProgressIndicator progress = null;
+        if (host != null && !work.isDone()) { // <- Nothing to show for work already done
+            progress = new ProgressIndicator();
+            progress.setMaxSize(60, 60);
+            progress.setMouseTransparent(true);
+            host.getChildren().add(progress);
+        }
+        ProgressIndicator shown = progress;
+        work.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (shown != null) {
+                host.getChildren().remove(shown);
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                System.err.println("Background operation failed: " + cause.getMessage());
+                cause.printStackTrace();
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Error");
+                alert.setHeaderText(null);
+                alert.setContentText("Failed to access data files: " + cause.getMessage());
+                alert.showAndWait();
+                return;
+            }
+            onDone.accept(result);
+        }));
+    }
+}
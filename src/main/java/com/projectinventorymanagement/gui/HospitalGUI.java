@@ -2,16 +2,67 @@ package com.projectinventorymanagement.gui;
 
 import javafx.stage.Stage;
 import com.projectinventorymanagement.database.HospitalDatabase;
+import com.projectinventorymanagement.database.ItemDatabase;
+import com.projectinventorymanagement.database.RowChange;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 public class HospitalGUI extends TableGUI {
-    
-    public HospitalGUI(Stage stage, HospitalDatabase hospitalDatabase) {
+    private final HospitalDatabase hospitalDatabase;
+    private final ItemDatabase itemDatabase;
+    private final List<String> itemColumns = new ArrayList<>(); // <- One column per item, after the table's own
+
+    public HospitalGUI(Stage stage, HospitalDatabase hospitalDatabase, ItemDatabase itemDatabase) {
         // Pass both the stage and a new HospitalDatabase instance to the superclass
         super(stage, hospitalDatabase);
+        this.hospitalDatabase = hospitalDatabase;
+        this.itemDatabase = itemDatabase;
     }
 
     @Override
     protected String getDataSource() {
         return "hospital";
     }
+
+    // The items in the order of ppe.txt, then any item received that is no longer there
+    @Override
+    protected List<String> viewHeaders(List<String> header) {
+        LinkedHashSet<String> codes = new LinkedHashSet<>();
+        for (ArrayList<String> item : itemDatabase.getItems()) {
+            if (!item.isEmpty()) {
+                codes.add(item.get(0));
+            }
+        }
+        codes.addAll(hospitalDatabase.getDistribution().getItemCodes());
+        itemColumns.clear();
+        itemColumns.addAll(codes);
+        List<String> columns = new ArrayList<>(header);
+        columns.addAll(itemColumns);
+        return columns;
+    }
+
+    @Override
+    protected List<String> viewRow(List<String> row) {
+        List<String> cells = new ArrayList<>(row);
+        if (row.isEmpty()) {
+            return cells;
+        }
+        Map<String, Long> received = hospitalDatabase.getReceivedItems(row.get(0));
+        for (String itemCode : itemColumns) {
+            cells.add(String.valueOf(received.getOrDefault(itemCode, 0L)));
+        }
+        return cells;
+    }
+
+    @Override
+    protected void applyChanges(List<RowChange> changes) {
+        if (!itemColumns.containsAll(hospitalDatabase.getDistribution().getItemCodes())) {
+            loadData(); // <- An item was distributed for the first time, it needs a column
+            return;
+        }
+        super.applyChanges(changes);
+    }
 }
@@ -6,7 +6,7 @@ import com.projectinventorymanagement.database.ItemDatabase;
 public class ItemGUI extends TableGUI {
     
     public ItemGUI(Stage stage, ItemDatabase itemDatabase) {
-        super(stage, new ItemDatabase());
+        super(stage, itemDatabase); // <- Already loaded by the caller
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.projectinventorymanagement.gui;
 
+import com.projectinventorymanagement.database.DatabaseContext;
 import com.projectinventorymanagement.database.UserDatabase;
 import com.projectinventorymanagement.models.User;
 import javafx.application.Application;
@@ -11,16 +12,18 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import com.projectinventorymanagement.utils.SessionManager;
 
+import java.util.concurrent.CompletableFuture;
+
 public class LoginGUI extends Application {
     
-    private UserDatabase userDatabase;
+    private CompletableFuture<UserDatabase> userDatabase;
 
     @Override
     public void start(Stage primaryStage) {
         primaryStage.setTitle("Login");
 
-        // Initialize UserDatabase
-        userDatabase = new UserDatabase();
+        // Load UserDatabase in the background (once per run); Login is enabled once it is ready
+        userDatabase = DatabaseContext.get().users();
 
         // Container Layout
         BorderPane root = new BorderPane();
@@ -63,7 +66,7 @@ public class LoginGUI extends Application {
             String username = txtUsername.getText().trim();
             String password = txtPassword.getText().trim();
 
-            User user = userDatabase.authenticate(username, password);
+            User user = userDatabase.join().authenticate(username, password); // <- Loaded, see below
             if (user != null) {
                 lblMessage.setText("Login successful! Welcome, " + user.getName());
                 lblMessage.setVisible(true);
@@ -98,6 +101,8 @@ public class LoginGUI extends Application {
         // Layout
         loginBox.getChildren().addAll(lblTitle, lblUsername, txtUsername, lblPassword, txtPassword, lblMessage, buttonRow, exitBox);
         root.setCenter(loginBox);
+        btnLogin.setDisable(true);
+        FxAsync.whenDone(loginBox, userDatabase, _ -> btnLogin.setDisable(false));
 
         // Scene Setup
         Scene scene = new Scene(root, 400, 350);
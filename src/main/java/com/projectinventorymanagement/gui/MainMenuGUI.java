@@ -10,6 +10,7 @@ import javafx.scene.control.Tooltip;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
@@ -27,12 +28,15 @@ import javafx.scene.control.Alert;
 import com.projectinventorymanagement.utils.*;
 import com.projectinventorymanagement.database.*;
 
+import java.util.concurrent.CompletableFuture;
+
 public class MainMenuGUI extends Application {
-    TransactionDatabase transactionDatabase = new TransactionDatabase();
-    ItemDatabase itemDatabase = new ItemDatabase();
-    HospitalDatabase hospitalDatabase = new HospitalDatabase();
-    SupplierDatabase supplierDatabase = new SupplierDatabase();
-    UserDatabase userDatabase = new UserDatabase();
+    // Shared by every screen, loaded in the background while the menu is shown
+    private final DatabaseContext databases = DatabaseContext.get();
+    CompletableFuture<TransactionDatabase> transactionDatabase = databases.transactions();
+    CompletableFuture<ItemDatabase> itemDatabase = databases.items();
+    CompletableFuture<HospitalDatabase> hospitalDatabase = databases.hospitals();
+    CompletableFuture<SupplierDatabase> supplierDatabase = databases.suppliers();
 
     // Color scheme for dark mode
     private final String PRIMARY_COLOR = "#3498db"; // Accent color (blue)
@@ -140,58 +144,63 @@ public class MainMenuGUI extends Application {
         // Main layout
         BorderPane root = new BorderPane();
         root.setTop(topPanel);
-        root.setCenter(dashboardLayout);
+        StackPane content = new StackPane(dashboardLayout); // <- Hosts the progress indicator while tables load
+        root.setCenter(content);
 
         // Get screen size
         double width = Screen.getPrimary().getBounds().getWidth();
         double height = Screen.getPrimary().getBounds().getHeight();
 
         // Button Logic - all the same as original
-        btnSupplier.setOnAction(_ -> {
-            try {
-                SupplierDatabase supplierDatabase = new SupplierDatabase();
-                SupplierGUI supplierGUI = new SupplierGUI(primaryStage, supplierDatabase);
-                supplierGUI.show(primaryStage);
-            } catch (Exception e) {
-                e.printStackTrace();
-                showAlert("Error", "Failed to open Supplier GUI: " + e.getMessage());
-            }
-        });
-
-        btnItem.setOnAction(_ -> {
-            ItemDatabase itemDatabase = new ItemDatabase();
-            ItemGUI itemGUI = new ItemGUI(primaryStage, itemDatabase);
+        // Table files are read once, on a background thread; the screens open once they are loaded
+        btnSupplier.setOnAction(_ -> FxAsync.whenDone(content, supplierDatabase,
+                suppliers -> {
+                    try {
+                        SupplierGUI supplierGUI = new SupplierGUI(primaryStage, suppliers);
+                        supplierGUI.show(primaryStage);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        showAlert("Error", "Failed to open Supplier GUI: " + e.getMessage());
+                    }
+                }));
+
+        btnItem.setOnAction(_ -> FxAsync.whenDone(content, itemDatabase, items -> {
+            ItemGUI itemGUI = new ItemGUI(primaryStage, items);
             itemGUI.show(primaryStage);
-        });
-
-        btnHospitals.setOnAction(_ -> {
-            HospitalDatabase hospitalDatabase = new HospitalDatabase();
-            HospitalGUI hospitalGUI = new HospitalGUI(primaryStage, hospitalDatabase);
-            hospitalGUI.show(primaryStage);
-        });
-
-        btnDistribute.setOnAction(_ -> {
-            TransactionGUI transactionGUI = new TransactionGUI(transactionDatabase, itemDatabase, hospitalDatabase,
-                    supplierDatabase);
-            transactionGUI.showTransactionPopup(primaryStage);
-        });
-
-        btnReports.setOnAction(_ -> {
+        }));
+
+        btnHospitals.setOnAction(_ -> FxAsync.whenDone(content,
+                CompletableFuture.allOf(hospitalDatabase, itemDatabase),
+                _ -> {
+                    // The item columns come from the ppe table
+                    HospitalGUI hospitalGUI = new HospitalGUI(primaryStage, hospitalDatabase.join(), itemDatabase.join());
+                    hospitalGUI.show(primaryStage);
+                }));
+
+        btnDistribute.setOnAction(_ -> FxAsync.whenDone(content,
+                CompletableFuture.allOf(transactionDatabase, itemDatabase, hospitalDatabase, supplierDatabase),
+                _ -> {
+                    // All four are complete, so join() does not wait
+                    TransactionGUI transactionGUI = new TransactionGUI(transactionDatabase.join(),
+                            itemDatabase.join(), hospitalDatabase.join(), supplierDatabase.join());
+                    transactionGUI.showTransactionPopup(primaryStage);
+                }));
+
+        btnReports.setOnAction(_ -> FxAsync.whenDone(content, transactionDatabase, transactions -> {
             try {
                 // Use the existing transactionDatabase instance instead of creating a new one
-                ReportGUI reportGUI = new ReportGUI(primaryStage, this.transactionDatabase);
+                ReportGUI reportGUI = new ReportGUI(primaryStage, transactions);
                 reportGUI.show(primaryStage);
             } catch (Exception e) {
                 e.printStackTrace();
                 showAlert("Error", "Failed to open Reports: " + e.getMessage());
             }
-        });
+        }));
 
-        btnUsers.setOnAction(_ -> {
-            UserDatabase userDatabase = new UserDatabase();
+        btnUsers.setOnAction(_ -> FxAsync.whenDone(content, databases.users(), userDatabase -> {
             UserGUI userGUI = new UserGUI(primaryStage, userDatabase);
             userGUI.show(primaryStage);
-        });
+        }));
 
         btnLogout.setOnAction(_ -> {
             LoginGUI loginGUI = new LoginGUI();
@@ -1,5 +1,6 @@
 package com.projectinventorymanagement.gui;
 
+import com.projectinventorymanagement.database.DatabaseContext;
 import com.projectinventorymanagement.database.UserDatabase;
 import com.projectinventorymanagement.models.User;
 import javafx.application.Application;
@@ -10,9 +11,11 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletableFuture;
+
 public class RegisterGUI extends Application {
 
-    private final UserDatabase userDatabase = new UserDatabase(); // Instantiate UserDatabase
+    private final CompletableFuture<UserDatabase> userDatabase = DatabaseContext.get().users(); // <- Loads in the background, shared with LoginGUI
 
     @Override
     public void start(Stage primaryStage) {
@@ -90,7 +93,7 @@ public class RegisterGUI extends Application {
             }
 
             User newUser = new User(name, username, password, "Staff", email, phone, true);
-            if (userDatabase.addUser(newUser)) { // Use instance method instead of static call
+            if (userDatabase.join().addUser(newUser)) { // Use instance method instead of static call
                 lblMessage.setText("User registered successfully!");
                 lblMessage.getStyleClass().add("success-text");
             } else {
@@ -112,6 +115,8 @@ public class RegisterGUI extends Application {
 
         // Layout
         registerBox.getChildren().addAll(lblTitle, formGrid, lblMessage, buttonRow);
+        btnRegister.setDisable(true); // <- Until the users are loaded
+        FxAsync.whenDone(registerBox, userDatabase, _ -> btnRegister.setDisable(false));
 
         // Scene Setup
         Scene scene = new Scene(registerBox, 500, 550);
@@ -35,6 +35,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -48,6 +49,7 @@ public class ReportGUI extends TableGUI {
     private Tab tableTab;
     private Tab chartTab;
     private ComboBox<String> exportFormatComboBox;
+    private HBox headerBox; // <- Shows the progress of a reload
 
     public ReportGUI(Stage stage, TransactionDatabase transactionDatabase) {
         super(stage, transactionDatabase);
@@ -121,7 +123,7 @@ public class ReportGUI extends TableGUI {
         title.setFont(Font.font("Arial", FontWeight.BOLD, 22));
         title.setFill(Color.web("#2c3e50"));
 
-        HBox headerBox = new HBox(10);
+        headerBox = new HBox(10);
         headerBox.setAlignment(Pos.CENTER);
         headerBox.setPadding(new Insets(0, 0, 20, 0));
         headerBox.getChildren().add(title);
@@ -212,23 +214,7 @@ public class ReportGUI extends TableGUI {
         // Refresh button
         Button btnRefresh = new Button("Refresh");
         styleButton(btnRefresh, "#3498db");
-        btnRefresh.setOnAction(_ -> {
-            // Ensure we're reloading data from the database
-            if (database instanceof TransactionDatabase) {
-                ((TransactionDatabase) database).reloadData();
-            }
-
-            // Clear the current observable data and reload it
-            observableData.clear();
-            loadData();
-
-            // Make sure the table view refreshes with the new data
-            tableView.setItems(observableData);
-            tableView.refresh();
-
-            // Update the charts with the refreshed data
-            updateCharts();
-        });
+        btnRefresh.setOnAction(_ -> loadData()); // <- Reloads from the file, then refreshes table and charts
 
         // Delete button (preserving existing functionality)
         btnDelete = new Button("Delete");
@@ -287,12 +273,24 @@ public class ReportGUI extends TableGUI {
         }
     }
 
+    // Picks up new transactions from the file in the background, then refreshes on the FX thread
     @Override
     public void loadData() {
-        if (database instanceof TransactionDatabase) {
-            ((TransactionDatabase) database).reloadData(); // <-- Add this method to reload from file
+        if (!(database instanceof TransactionDatabase transactions)) {
+            super.loadData();
+            updateCharts();
+            return;
         }
-        super.loadData(); // This populates observableData
+        FxAsync.whenDone(headerBox, transactions.reloadDataAsync(), _ -> {
+            super.loadData(); // This populates observableData
+            tableView.refresh();
+            updateCharts();
+        });
+    }
+
+    // New transactions arrive as row changes, so only the charts need redrawing
+    @Override
+    protected void onRowsChanged() {
         updateCharts();
     }
 
@@ -452,20 +450,10 @@ public class ReportGUI extends TableGUI {
         }
 
         ObservableList<ObservableList<String>> filteredData = FXCollections.observableArrayList();
-        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        for (ObservableList<String> row : observableData) {
-            if (row.size() > 5) {
-                try {
-                    LocalDateTime dateTime = LocalDateTime.parse(row.get(5), dtf);
-                    LocalDate date = dateTime.toLocalDate();
-                    if ((date.isEqual(startDate) || date.isAfter(startDate)) &&
-                            (date.isEqual(endDate) || date.isBefore(endDate))) {
-                        filteredData.add(row);
-                    }
-                } catch (Exception e) {
-                    System.out.println("Error parsing date: " + row.get(5));
-                }
-            }
+        // Whole days from the start date up to and including the end date
+        for (ArrayList<String> row : ((TransactionDatabase) database).rangeQuery(startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay())) {
+            filteredData.add(FXCollections.observableArrayList(row));
         }
 
         // Let user select where to save the report
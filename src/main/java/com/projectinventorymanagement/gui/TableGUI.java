@@ -9,6 +9,8 @@ import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -34,16 +36,23 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import com.projectinventorymanagement.database.DatabaseBase;
+import com.projectinventorymanagement.database.RowChange;
+import com.projectinventorymanagement.database.RowChangeSubscriber;
 
 public abstract class TableGUI {
 
     // Existing fields
     protected ObservableList<ObservableList<String>> observableData;
     protected ArrayList<String> headers;
+    protected int databaseColumns; // <- Columns of the table itself, the first ones of headers
     protected TableView<ObservableList<String>> tableView;
     protected Stage primaryStage;
     protected Button enableDisableButton;
@@ -57,6 +66,11 @@ public abstract class TableGUI {
     protected String cssPath = "/modern-table.css";
     protected String currentTheme = LIGHT_THEME;
     protected Map<String, Double> columnWidths = new HashMap<>();
+    private final Map<ObservableList<String>, Integer> databaseRows = new IdentityHashMap<>(); // <- Table row -> database row index
+    private final Map<Integer, ObservableList<String>> tableRows = new HashMap<>(); // <- The reverse, for change events
+    private RowChangeSubscriber rowFeed; // <- Applies the database's row changes while the table is shown
+    private FilteredList<ObservableList<String>> filteredData;
+    private SortedList<ObservableList<String>> sortedFilteredData;
 
     private static final PseudoClass ACTIVE = PseudoClass.getPseudoClass("active");
     private static final String LIGHT_THEME = "light-theme";
@@ -92,8 +106,10 @@ public abstract class TableGUI {
             // Initialize components first
             setupGUI();
 
-            // Load data after components are ready
+            // Load data after components are ready; from then on the table follows the database's changes
+            subscribeToChanges();
             loadData();
+            FxAsync.whenDone(database.prepareSearchAsync(), _ -> { }); // <- Search index is read off the FX thread
 
             // Create scene with initialized components
             BorderPane layout = createLayout();
@@ -130,6 +146,12 @@ public abstract class TableGUI {
                 layout.setPrefHeight(newVal.doubleValue());
             });
 
+            scene.windowProperty().addListener((obs, oldWindow, newWindow) -> {
+                if (newWindow == null && rowFeed != null) {
+                    rowFeed.cancel(); // <- The stage moved on to another screen
+                }
+            });
+
             // Show the stage
             primaryStage.setScene(scene);
             primaryStage.show();
@@ -269,25 +291,29 @@ public abstract class TableGUI {
     }
 
     protected void loadData() {
-        HashMap<Integer, ArrayList<String>> data = database.getEntries();
+        Map<Integer, ArrayList<String>> data = database.getEntries();
         if (data == null || data.isEmpty()) {
             return;
         }
 
         // Clear existing data
         observableData.clear();
+        databaseRows.clear();
+        tableRows.clear();
         headers.clear();
 
         // Load headers (from row 0)
         if (data.containsKey(0)) {
-            headers.addAll(data.get(0));
+            databaseColumns = data.get(0).size();
+            headers.addAll(viewHeaders(data.get(0)));
         }
 
-        // Load data rows (starting from row 1)
-        for (int row = 1; row < data.size(); row++) {
-            if (data.containsKey(row)) {
-                observableData.add(FXCollections.observableArrayList(data.get(row)));
-            }
+        // Load data rows (starting from row 1), by index: a delete leaves a hole until the next checkpoint
+        for (Map.Entry<Integer, ArrayList<String>> entry : new TreeMap<>(data).tailMap(1).entrySet()) {
+            ObservableList<String> tableRow = FXCollections.observableArrayList(viewRow(entry.getValue()));
+            databaseRows.put(tableRow, entry.getKey());
+            tableRows.put(entry.getKey(), tableRow);
+            observableData.add(tableRow);
         }
 
         // Sort the data initially by first column
@@ -313,6 +339,80 @@ public abstract class TableGUI {
         Platform.runLater(this::updateChart);
     }
 
+    private void subscribeToChanges() {
+        rowFeed = new RowChangeSubscriber(database) {
+            @Override
+            protected void deliver(Runnable drain) {
+                Platform.runLater(drain);
+            }
+
+            @Override
+            protected void apply(List<RowChange> changes) {
+                applyChanges(changes);
+            }
+
+            @Override
+            protected void resync() {
+                loadData();
+            }
+        };
+        rowFeed.subscribe();
+    }
+
+    /**
+     * Applies row changes of the database to the table in place, instead of
+     * loading all rows again. Called on the FX thread.
+     */
+    protected void applyChanges(List<RowChange> changes) {
+        for (RowChange change : changes) {
+            if (change.index() == 0) {
+                loadData(); // <- The header changed, so may the columns
+                return;
+            }
+            ObservableList<String> row = tableRows.get(change.index());
+            if (change.kind() == RowChange.Kind.DELETE) {
+                if (row != null) {
+                    tableRows.remove(change.index());
+                    databaseRows.remove(row);
+                    observableData.removeIf(each -> each == row);
+                }
+            } else if (row != null) {
+                row.setAll(viewRow(change.newRow()));
+            } else {
+                ObservableList<String> tableRow = FXCollections.observableArrayList(viewRow(change.newRow()));
+                databaseRows.put(tableRow, change.index());
+                tableRows.put(change.index(), tableRow);
+                observableData.add(tableRow);
+            }
+        }
+        tableView.refresh();
+        onRowsChanged();
+    }
+
+    /**
+     * Returns the column headers shown for the table's header row. Screens may
+     * append columns derived from other tables; they come after the table's
+     * own columns, so column indexes of the two stay the same.
+     */
+    protected List<String> viewHeaders(List<String> header) {
+        return header;
+    }
+
+    /**
+     * Returns the cells shown for one row of the table, matching viewHeaders().
+     */
+    protected List<String> viewRow(List<String> row) {
+        return row;
+    }
+
+    /**
+     * Called after row changes were applied; refreshes what is derived from
+     * the rows, like the chart.
+     */
+    protected void onRowsChanged() {
+        updateChart();
+    }
+
     private void createColumns() {
         tableView.getColumns().clear();
 
@@ -331,6 +431,9 @@ public abstract class TableGUI {
             // Prevent column resizing if you want fixed widths
             column.setResizable(false);
 
+            // Columns after the table's own are derived (viewHeaders()) and saveData() drops them
+            column.setEditable(columnIndex < databaseColumns);
+
             // Set cell value factory
             column.setCellValueFactory(cellData -> {
                 if (cellData.getValue().size() > columnIndex) {
@@ -1147,22 +1250,24 @@ public abstract class TableGUI {
                 translate.setByX(100);
 
                 fade.setOnFinished(_ -> {
+                    int databaseRow = databaseRowOf(selectedRow); // <- Before the row leaves the table
                     observableData.remove(selectedRow);
                     tableView.refresh();
-
-                    // Remove from database (adjust index since headers are at row 0)
-                    database.deleteEntry(selectedIndex + 1);
-                    database.saveData(); // Ensure database update
+                    if (databaseRow >= 0) {
+                        database.deleteEntry(databaseRow);
+                    }
                 });
 
                 fade.play();
                 translate.play();
             } else {
                 // Fallback if animation fails
+                int databaseRow = databaseRowOf(selectedRow);
                 observableData.remove(selectedRow);
                 tableView.refresh();
-                database.deleteEntry(selectedIndex + 1);
-                database.saveData();
+                if (databaseRow >= 0) {
+                    database.deleteEntry(databaseRow);
+                }
             }
         }
     }
@@ -1179,12 +1284,12 @@ public abstract class TableGUI {
 
             // Update the corresponding row in the database
             int selectedIndex = tableView.getSelectionModel().getSelectedIndex();
-            if (selectedIndex >= 0) {
-                HashMap<Integer, ArrayList<String>> dbData = database.getEntries();
-                if (dbData.containsKey(selectedIndex + 1)) {
-                    dbData.get(selectedIndex + 1).set(isActiveIndex, String.valueOf(!isEnabled));
-                }
-                database.saveData(); // Ensure changes persist
+            int databaseRow = databaseRowOf(selectedRow); // <- Not selectedIndex + 1 once sorted, filtered or after a delete
+            if (databaseRow >= 0) {
+                database.modifyEntry(databaseRow, dbRow -> {
+                    dbRow.set(isActiveIndex, String.valueOf(!isEnabled));
+                    return dbRow; // Ensure changes persist
+                });
             }
 
             enableDisableButton.setText(isEnabled ? "Enable" : "Disable");
@@ -1235,21 +1340,32 @@ public abstract class TableGUI {
         enableDisableButton.setText("true".equalsIgnoreCase(currentValue) ? "Disable" : "Enable");
     }
 
+    /**
+     * Returns the database row index a row of the table view shows, or -1.
+     */
+    protected int databaseRowOf(ObservableList<String> tableRow) {
+        Integer databaseRow = tableRow == null ? null : databaseRows.get(tableRow);
+        return databaseRow == null ? -1 : databaseRow;
+    }
+
     protected void filterTable(String query) {
         if (query == null || query.trim().isEmpty()) {
             tableView.setItems(observableData);
             return;
         }
 
-        ObservableList<ObservableList<String>> filteredData = FXCollections.observableArrayList();
-        for (ObservableList<String> row : observableData) {
-            for (String cell : row) {
-                if (cell.toLowerCase().contains(query.toLowerCase())) {
-                    filteredData.add(row);
-                    break;
-                }
-            }
+        // Resolve the query once against the database's search index, then only
+        // test membership per row instead of scanning every cell.
+        BitSet matches = database.search(query);
+        if (filteredData == null) {
+            filteredData = new FilteredList<>(observableData);
+            sortedFilteredData = new SortedList<>(filteredData);
+            sortedFilteredData.comparatorProperty().bind(tableView.comparatorProperty());
         }
+        filteredData.setPredicate(row -> {
+            Integer databaseRow = databaseRows.get(row);
+            return matches == null || (databaseRow != null && matches.get(databaseRow));
+        });
 
         // Create a fade transition when filtering
         FadeTransition fadeOut = new FadeTransition(Duration.millis(150), tableView);
@@ -1261,7 +1377,7 @@ public abstract class TableGUI {
         fadeIn.setToValue(1.0);
 
         fadeOut.setOnFinished(_ -> {
-            tableView.setItems(filteredData);
+            tableView.setItems(sortedFilteredData);
             fadeIn.play();
         });
 
@@ -1290,15 +1406,14 @@ public abstract class TableGUI {
 
     protected void saveData() {
         HashMap<Integer, ArrayList<String>> dataToSave = new HashMap<>();
-        dataToSave.put(0, new ArrayList<>(headers));
+        dataToSave.put(0, new ArrayList<>(headers.subList(0, databaseColumns)));
         int rowIndex = 1; // <- Row 0 is headers
         for (ObservableList<String> row : observableData) {
-            dataToSave.put(rowIndex, new ArrayList<>(row));
+            dataToSave.put(rowIndex, new ArrayList<>(row.subList(0, Math.min(databaseColumns, row.size())))); // <- Without viewHeaders() extras
             rowIndex++;
         }
-        // Update the database's boundList and save.
-        database.boundList = dataToSave;
-        database.saveData();
+        // Replace the database's rows; this also schedules the save.
+        database.replaceAll(dataToSave);
     }
     // First Letter Capitalizer
     public static String capitalizeFirst(String str) {
@@ -1,6 +1,8 @@
 package com.projectinventorymanagement.gui;
 
 import com.projectinventorymanagement.database.*;
+import com.projectinventorymanagement.utils.BackgroundIO;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -16,9 +18,8 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class TransactionGUI {
     private ComboBox<String> transactionTypeDropdown;
@@ -26,6 +27,8 @@ public class TransactionGUI {
     private ComboBox<String> itemDropdown;
     private TextField quantityField;
     private Button confirmButton;
+    private ListView<String> basketView;
+    private final List<TransactionProcessor.Line> basketLines = new ArrayList<>(); // <- Parallel to basketView
     private final TransactionDatabase transactionDatabase;
     private final ItemDatabase itemDatabase;
     private final HospitalDatabase hospitalDatabase;
@@ -106,9 +109,23 @@ public class TransactionGUI {
         Label quantityLabel = createLabel("Quantity");
         quantityField = createStyledTextField("Enter Quantity");
 
-        // Event listeners
-        transactionTypeDropdown.setOnAction(_ -> updateEntityDropdown());
-        entityDropdown.setOnAction(_ -> updateItemDropdown());
+        // Basket of further items for the same hospital or supplier
+        Label basketLabel = createLabel("Basket");
+        basketView = new ListView<>();
+        basketView.setPrefHeight(110);
+        basketView.setPlaceholder(new Label("Add several items to move them together"));
+        Button addToBasketButton = new Button("Add to Basket");
+        addToBasketButton.setOnAction(_ -> addToBasket());
+
+        // Event listeners; a basket belongs to one type and entity
+        transactionTypeDropdown.setOnAction(_ -> {
+            clearBasket();
+            updateEntityDropdown();
+        });
+        entityDropdown.setOnAction(_ -> {
+            clearBasket();
+            updateItemDropdown();
+        });
 
         // Create confirm button with icon
         confirmButton = createStyledButton("Confirm Transaction", SUCCESS_COLOR);
@@ -139,6 +156,9 @@ public class TransactionGUI {
         formGrid.add(itemDropdown, 1, 2);
         formGrid.add(quantityLabel, 0, 3);
         formGrid.add(quantityField, 1, 3);
+        formGrid.add(addToBasketButton, 1, 4);
+        formGrid.add(basketLabel, 0, 5);
+        formGrid.add(basketView, 1, 5);
 
         // Set column constraints
         ColumnConstraints labelColumn = new ColumnConstraints();
@@ -170,7 +190,7 @@ public class TransactionGUI {
         mainLayout.setPadding(new Insets(0, 0, 20, 0));
 
         // Create scene
-        Scene scene = new Scene(mainLayout, 450, 500);
+        Scene scene = new Scene(mainLayout, 450, 650);
 
         popupStage.setScene(scene);
         popupStage.setResizable(false);
@@ -253,8 +273,7 @@ public class TransactionGUI {
         if ("Distribute".equals(transactionTypeDropdown.getValue())) {
             for (ArrayList<String> itemEntry : itemDatabase.getItems()) {
                 String itemName = itemEntry.get(1);
-                int quantity = Integer.parseInt(itemEntry.get(2));
-                if (quantity > 0) {
+                if (itemDatabase.getItemQuantity(itemEntry.get(0)) > 0) {
                     filteredItems.add(itemName);
                 }
             }
@@ -284,116 +303,95 @@ public class TransactionGUI {
         return map;
     }
 
-    private void handleTransaction(Stage popupStage) {
-        String type = transactionTypeDropdown.getValue();
-        String entity = entityDropdown.getValue();
+    // Adds the item and quantity in the form to the basket and clears them for the next line
+    private void addToBasket() {
+        TransactionProcessor.Line line = readLine();
+        if (line == null) {
+            return;
+        }
+        basketLines.add(line);
+        basketView.getItems().add(itemDropdown.getValue() + " x " + line.quantity());
+        itemDropdown.setValue(null);
+        quantityField.clear();
+    }
+
+    private void clearBasket() {
+        basketLines.clear();
+        if (basketView != null) {
+            basketView.getItems().clear();
+        }
+    }
+
+    // The line in the form, or null (after an alert) if it is incomplete or invalid
+    private TransactionProcessor.Line readLine() {
         String item = itemDropdown.getValue();
         String quantityStr = quantityField.getText();
-
-        if (type == null || entity == null || item == null || quantityStr.isEmpty()) {
+        if (transactionTypeDropdown.getValue() == null || entityDropdown.getValue() == null || item == null
+                || quantityStr.isEmpty()) {
             showAlert("Error", "Please fill in all fields.", Alert.AlertType.ERROR);
-            return;
+            return null;
         }
-
         try {
             int quantity = Integer.parseInt(quantityStr);
             if (quantity <= 0) {
                 showAlert("Error", "Quantity must be greater than zero.", Alert.AlertType.ERROR);
-                return;
-            }
-
-            String itemCode = itemDatabase.getCodeByName(item);
-            String entityCode = ("Distribute".equals(type)) ? hospitalDatabase.getCodeByName(entity)
-                    : supplierDatabase.getCodeByName(entity);
-
-            int availableQuantity = itemDatabase.getItemQuantity(itemCode);
-            if ("Distribute".equals(type) && quantity > availableQuantity) {
-                showAlert("Error", "Insufficient stock. Available: " + availableQuantity, Alert.AlertType.ERROR);
-                return;
+                return null;
             }
-
-            int transactionID = new Random().nextInt(1000000);
-            String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-            ArrayList<String> transactionEntry = new ArrayList<>();
-            transactionEntry.add(String.valueOf(transactionID));
-            transactionEntry.add(itemCode);
-            transactionEntry.add(entityCode);
-            transactionEntry.add(type);
-            transactionEntry.add(quantityStr);
-            transactionEntry.add(dateTime);
-
-            transactionDatabase.addEntry(transactionDatabase.getEntries().size(), transactionEntry);
-            transactionDatabase.saveData();
-
-            if ("Distribute".equals(type)) {
-                itemDatabase.updateItemQuantity(itemCode, -quantity);
-                updateHospitalReceivedItems(entityCode, itemCode, quantity);
-            } else if ("Receive".equals(type)) {
-                itemDatabase.updateItemQuantity(itemCode, quantity);
-                supplierDatabase.updateSupplierReceivedItems(entityCode, itemCode, quantity);
-            }
-
-            showSuccessDialog(type, entity, item, quantity);
-            popupStage.close();
+            return new TransactionProcessor.Line(itemDatabase.getCodeByName(item), quantity);
         } catch (NumberFormatException e) {
             showAlert("Error", "Please enter a valid number for quantity.", Alert.AlertType.ERROR);
-        } catch (Exception e) {
-            showAlert("Error", "An error occurred: " + e.getMessage(), Alert.AlertType.ERROR);
+            return null;
         }
     }
 
-    private void updateHospitalReceivedItems(String hospitalCode, String itemCode, int quantity) {
-        // Find the hospital entry by its code.
-        ArrayList<String> hospitalEntry = hospitalDatabase.findHospitalByCode(hospitalCode);
-        if (hospitalEntry == null) {
-            System.out.println("Hospital not found: " + hospitalCode);
-            return;
-        }
-
-        // Define the allowed item codes (Match Item Column Headers in hospital.txt)
-        List<String> allowedCodes = Arrays.asList("HC", "FS", "MS", "GL", "GW", "SC");
+    private void handleTransaction(Stage popupStage) {
+        String type = transactionTypeDropdown.getValue();
+        String entity = entityDropdown.getValue();
+        String item = itemDropdown.getValue();
 
-        // Use the item code directly to find the index in allowedCodes.
-        int itemIndexInList = allowedCodes.indexOf(itemCode);
-        if (itemIndexInList == -1) {
-            System.out.println("Invalid item code: " + itemCode);
-            return;
+        // The line still in the form counts as well, so a single item needs no basket
+        List<TransactionProcessor.Line> lines = new ArrayList<>(basketLines);
+        if (lines.isEmpty() || item != null || !quantityField.getText().isEmpty()) {
+            TransactionProcessor.Line line = readLine();
+            if (line == null) {
+                return;
+            }
+            lines.add(line);
         }
 
-        // In the hospital row:
-        // "Items Received (Total Boxes)" is at index 2.
-        // The specific item columns start at index 3:
-        // For example, allowedCodes[0] ("HC") is at index 3, allowedCodes[1] ("FS") is
-        // at index 4, etc.
-        int totalReceivedIndex = 2;
-        int specificItemColumnIndex = 3 + itemIndexInList;
-
-        // Parse the current values and update them.
-        int currentTotal = Integer.parseInt(hospitalEntry.get(totalReceivedIndex));
-        int currentSpecific = Integer.parseInt(hospitalEntry.get(specificItemColumnIndex));
-
-        hospitalEntry.set(totalReceivedIndex, String.valueOf(currentTotal + quantity));
-        hospitalEntry.set(specificItemColumnIndex, String.valueOf(currentSpecific + quantity));
-
-        // Retrieve the integer row index for this hospital.
-        int hospitalRowIndex = getHospitalRowIndex(hospitalCode);
-        if (hospitalRowIndex != -1) {
-            hospitalDatabase.updateEntry(hospitalRowIndex, hospitalEntry);
-            hospitalDatabase.saveData();
-        } else {
-            System.out.println("Hospital row not found for: " + hospitalCode);
-        }
-    }
+        boolean distribute = "Distribute".equals(type);
+        String entityCode = distribute ? hospitalDatabase.getCodeByName(entity)
+                : supplierDatabase.getCodeByName(entity);
+
+        // Validates every line and all stock first, then applies the whole basket or nothing.
+        // The commit forces the journal to disk, so it runs in the background.
+        confirmButton.setDisable(true);
+        CompletableFuture<TransactionProcessor.Result> processed = DatabaseContext.get().transactionProcessor()
+                .thenApplyAsync(processor -> processor.process(
+                        distribute ? TransactionProcessor.Type.DISTRIBUTE : TransactionProcessor.Type.RECEIVE,
+                        entityCode, lines), BackgroundIO.executor());
+        processed.whenComplete((_, _) -> Platform.runLater(() -> confirmButton.setDisable(false)));
+        FxAsync.whenDone(processed, result -> {
+            if (!result.success()) {
+                StringBuilder message = new StringBuilder(result.message());
+                for (Map.Entry<String, Integer> shortage : result.shortages().entrySet()) {
+                    message.append("\n").append(itemDatabase.getNameByCode(shortage.getKey()))
+                            .append(": available ").append(itemDatabase.getItemQuantity(shortage.getKey()))
+                            .append(", short by ").append(shortage.getValue());
+                }
+                showAlert("Error", message.toString(), Alert.AlertType.ERROR);
+                return;
+            }
 
-    private int getHospitalRowIndex(String hospitalCode) {
-        for (Map.Entry<Integer, ArrayList<String>> entry : hospitalDatabase.getEntries().entrySet()) {
-            ArrayList<String> row = entry.getValue();
-            if (!row.isEmpty() && row.get(0).equals(hospitalCode)) {
-                return entry.getKey();
+            int totalQuantity = 0;
+            for (TransactionProcessor.Line line : lines) {
+                totalQuantity += line.quantity();
             }
-        }
-        return -1; // Not found
+            String items = lines.size() == 1 ? itemDatabase.getNameByCode(lines.get(0).itemCode())
+                    : lines.size() + " lines";
+            showSuccessDialog(type, entity, items, totalQuantity);
+            popupStage.close();
+        });
     }
 
     private void showAlert(String title, String message, Alert.AlertType alertType) {
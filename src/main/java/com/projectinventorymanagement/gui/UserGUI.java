@@ -12,7 +12,6 @@ import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
 import javafx.animation.ScaleTransition;
 import javafx.collections.ObservableList;
-import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Optional;
 import javafx.scene.layout.*;
@@ -115,13 +114,11 @@ public class UserGUI extends TableGUI {
     }
 
     private void updateUserInDatabase(ObservableList<String> oldRow, ArrayList<String> updatedData) {
-        int selectedIndex = tableView.getSelectionModel().getSelectedIndex();
-        if (selectedIndex >= 0) {
-            HashMap<Integer, ArrayList<String>> dbData = database.getEntries();
-            if (dbData.containsKey(selectedIndex + 1)) {
-                dbData.put(selectedIndex + 1, updatedData);
+        int databaseRow = databaseRowOf(oldRow);
+        if (databaseRow >= 0) {
+            if (database.getEntry(databaseRow) != null) {
+                database.updateEntry(databaseRow, updatedData);
             }
-            database.saveData();
             loadData();
             tableView.refresh();
         }
@@ -70,6 +70,9 @@ public class User {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public boolean isActive() { return isActive; }
 
+    // Whether the user type is one the main menu opens the inventory screens for
+    public boolean canManageInventory() { return "Admin".equals(userType) || "Staff".equals(userType); }
+
 
     // Setter for User ID (Used in UserDatabase)
     public void setUserID(int userID) {
@@ -0,0 +1,66 @@
+package com.projectinventorymanagement.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs file I/O on virtual threads, so the JavaFX application thread only ever
+ * waits for memory. Loads, reloads and saves return CompletableFutures whose
+ * results the GUI hands back to its own thread with Platform.runLater.
+ *
+ * With -Dinventory.fxWatchdog=true, every place that reads or writes a table
+ * file calls checkNotFxThread(), which throws when it runs on the JavaFX
+ * thread, so a code path that still blocks the UI fails loudly in testing.
+ */
+public final class BackgroundIO {
+    private static final boolean WATCHDOG = Boolean.getBoolean("inventory.fxWatchdog");
+    private static final String FX_THREAD_NAME = "JavaFX Application Thread";
+
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private BackgroundIO() {
+    }
+
+    /**
+     * Runs a task that produces a result, e.g. opening a table.
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * Runs a task without a result, e.g. a reload or a save.
+     */
+    public static CompletableFuture<Void> run(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    /**
+     * The executor itself, for APIs that take one (e.g. change feeds).
+     */
+    public static Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Whether the caller is the JavaFX application thread. Compares the thread
+     * name because Platform.isFxApplicationThread() starts the toolkit when
+     * JavaFX is not running (headless use).
+     */
+    public static boolean onFxThread() {
+        return FX_THREAD_NAME.equals(Thread.currentThread().getName());
+    }
+
+    /**
+     * Watchdog for blocking I/O on the JavaFX thread; a no-op unless enabled.
+     * @param operation What is about to touch the disk, for the message.
+     */
+    public static void checkNotFxThread(String operation) {
+        if (WATCHDOG && onFxThread()) {
+            throw new IllegalStateException("File I/O on the JavaFX application thread: " + operation);
+        }
+    }
+}
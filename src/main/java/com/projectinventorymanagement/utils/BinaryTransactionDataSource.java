@@ -0,0 +1,366 @@
+package com.projectinventorymanagement.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Compact binary backend for the transactions table (data/transactions.bin).
+ *
+ * Layout: magic, version, header column names, a dictionary of item/entity
+ * codes, a dictionary of transaction types, the record count and then one
+ * fixed-width record per transaction:
+ * long ID, int item code, int entity code, byte type, int quantity and long
+ * epoch seconds of the (zone-less) Date-Time, or NO_TIME when it is missing.
+ *
+ * {@link #map(String)} reads the records in place through a MappedByteBuffer
+ * without creating objects per row, for code that scans the file itself.
+ * DatabaseBase keeps every table as rows in memory, so readData() still
+ * builds one row per record; what it saves over text is the line splitting
+ * and parsing, and codes and types are shared dictionary strings. Select it
+ * with -Dinventory.datasource.transactions=binary; an existing
+ * transactions.txt is converted the first time the binary file is read.
+ *
+ * Rows the format cannot hold exactly (a non-numeric ID or quantity, a
+ * Date-Time that does not parse, extra fields, more than 256 types) are not
+ * squeezed into it: the table is then written as transactions.txt instead,
+ * and the binary file is removed so the text is what gets read.
+ */
+public class BinaryTransactionDataSource implements DataSource {
+    public static final String NAME = "binary";
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final String DATA_PATH = "data/";
+    private static final String TABLE = "transactions";
+    private static final int MAGIC = 0x50504554; // <- "PPET"
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 8 + 4 + 4 + 1 + 4 + 8;
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(String source) {
+        return TABLE.equals(source);
+    }
+
+    @Override
+    public HashMap<Integer, ArrayList<String>> readData(String source) {
+        File file = binaryFile(source);
+        if (!file.exists()) {
+            // First use: convert the text table so no history is lost
+            HashMap<Integer, ArrayList<String>> data = FileHandler2.loadFromFile(source);
+            writeData(source, data);
+            return data;
+        }
+        HashMap<Integer, ArrayList<String>> data = new HashMap<>();
+        MappedTransactions mapped = map(source);
+        if (mapped == null) {
+            return data;
+        }
+        if (!mapped.header.isEmpty()) {
+            data.put(0, new ArrayList<>(mapped.header));
+        }
+        long lastEpoch = NO_TIME;
+        String lastTime = null; // <- Transactions of one basket share their Date-Time
+        for (int i = 0; i < mapped.size(); i++) {
+            ArrayList<String> row = new ArrayList<>(6);
+            row.add(Long.toString(mapped.transactionId(i)));
+            row.add(mapped.itemCode(i));
+            row.add(mapped.entityCode(i));
+            row.add(mapped.type(i));
+            row.add(Integer.toString(mapped.quantity(i)));
+            long epochSecond = mapped.epochSecond(i);
+            if (epochSecond != NO_TIME) {
+                if (epochSecond != lastEpoch || lastTime == null) {
+                    lastEpoch = epochSecond;
+                    lastTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC).format(formatter);
+                }
+                row.add(lastTime);
+            }
+            data.put(data.size(), row);
+        }
+        System.out.println("File loaded successfully: " + file.getName());
+        return data;
+    }
+
+    /**
+     * The binary file is only ever replaced as a whole, so a tail read succeeds
+     * only when nothing changed since the state was recorded.
+     */
+    @Override
+    public HashMap<Integer, ArrayList<String>> readData(String source, TailState state) {
+        HashMap<Integer, ArrayList<String>> data = readData(source);
+        try {
+            state.capture(binaryFile(source), 0, data.size(), 0);
+        } catch (IOException e) {
+            state.invalidate();
+        }
+        return data;
+    }
+
+    @Override
+    public boolean readTail(String source, TailState state, HashMap<Integer, ArrayList<String>> data) {
+        File file = binaryFile(source);
+        try {
+            return state.isValid() && file.exists() && state.onlyAppended(file) && state.unchanged(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void writeData(String source, HashMap<Integer, ArrayList<String>> data) {
+        List<String> header = new ArrayList<>();
+        List<ArrayList<String>> rows = new ArrayList<>();
+        for (ArrayList<String> row : new TreeMap<>(data).values()) {
+            if (row == null) {
+                continue;
+            }
+            if (header.isEmpty() && rows.isEmpty() && !isNumeric(row.get(0))) {
+                header = row; // <- Row 0 holds the column names
+            } else {
+                rows.add(row);
+            }
+        }
+
+        Dictionary codes = new Dictionary();
+        Dictionary types = new Dictionary();
+        for (ArrayList<String> row : rows) {
+            codes.idOf(field(row, 1));
+            codes.idOf(field(row, 2));
+            types.idOf(field(row, 3));
+        }
+        File target = binaryFile(source);
+        String misfit = types.size() > 256 ? types.size() + " transaction types" : null;
+        for (int i = 0; i < rows.size() && misfit == null; i++) {
+            misfit = misfit(rows.get(i));
+        }
+        if (misfit != null) {
+            // Storing it anyway would lose data; text holds any row
+            System.err.println("The binary format cannot hold " + misfit + ", writing " + source + " as text");
+            FileHandler2.saveToFile(source, data);
+            if (target.exists() && !target.delete()) {
+                System.err.println("Error deleting file: " + target.getName());
+            }
+            return;
+        }
+
+        File temp = new File(target.getPath() + ".tmp");
+        target.getParentFile().mkdirs();
+        try {
+            try (FileOutputStream output = new FileOutputStream(temp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeStrings(out, header);
+                writeStrings(out, codes.values);
+                writeStrings(out, types.values);
+                out.writeInt(rows.size());
+                for (ArrayList<String> row : rows) {
+                    out.writeLong(Long.parseLong(field(row, 0)));
+                    out.writeInt(codes.idOf(field(row, 1)));
+                    out.writeInt(codes.idOf(field(row, 2)));
+                    out.writeByte(types.idOf(field(row, 3)));
+                    out.writeInt(Integer.parseInt(field(row, 4)));
+                    out.writeLong(parseTime(field(row, 5)));
+                }
+                out.flush();
+                output.getFD().sync();
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("File saved successfully: " + target.getName());
+        } catch (IOException e) {
+            System.err.println("Error writing to file: " + target.getName());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Maps the binary table into memory for allocation-free reads.
+     * @param source The table name.
+     * @return A view over the records, or null if the file does not exist.
+     */
+    public MappedTransactions map(String source) {
+        File file = binaryFile(source);
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedTransactions(buffer);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + file.getName());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Read-only view over the fixed-width records of a mapped transactions file.
+     * Code lookups return the shared dictionary strings, so no per-row objects are created.
+     */
+    public static class MappedTransactions {
+        private final ByteBuffer buffer;
+        private final List<String> header;
+        private final String[] codes;
+        private final String[] types;
+        private final int count;
+        private final int recordsStart;
+
+        MappedTransactions(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a transactions file of version " + VERSION);
+            }
+            this.header = Arrays.asList(readStrings(buffer));
+            this.codes = readStrings(buffer);
+            this.types = readStrings(buffer);
+            this.count = buffer.getInt();
+            this.recordsStart = buffer.position();
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public List<String> getHeader() {
+            return header;
+        }
+
+        public long transactionId(int row) {
+            return buffer.getLong(offset(row));
+        }
+
+        public String itemCode(int row) {
+            return codes[buffer.getInt(offset(row) + 8)];
+        }
+
+        public String entityCode(int row) {
+            return codes[buffer.getInt(offset(row) + 12)];
+        }
+
+        public String type(int row) {
+            return types[buffer.get(offset(row) + 16) & 0xFF];
+        }
+
+        public int quantity(int row) {
+            return buffer.getInt(offset(row) + 17);
+        }
+
+        // Seconds since the epoch of the zone-less Date-Time, or NO_TIME
+        public long epochSecond(int row) {
+            return buffer.getLong(offset(row) + 21);
+        }
+
+        private int offset(int row) {
+            if (row < 0 || row >= count) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + count);
+            }
+            return recordsStart + row * RECORD_SIZE;
+        }
+    }
+
+    // Assigns dense ids to strings in order of first appearance
+    private static class Dictionary {
+        private final HashMap<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int idOf(String value) {
+            return ids.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    private static File binaryFile(String source) {
+        return new File(DATA_PATH + source + ".bin");
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static String field(ArrayList<String> row, int index) {
+        return index < row.size() ? row.get(index) : "";
+    }
+
+    private static boolean isNumeric(String value) {
+        try {
+            Long.parseLong(value.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Describes why a row would not read back exactly as given, or returns null if it would
+    private static String misfit(ArrayList<String> row) {
+        if (row.size() < 5 || row.size() > 6) {
+            return "a row of " + row.size() + " fields: " + String.join(",", row);
+        }
+        try {
+            if (!Long.toString(Long.parseLong(row.get(0))).equals(row.get(0))
+                    || !Integer.toString(Integer.parseInt(row.get(4))).equals(row.get(4))) {
+                return "the numbers of row " + String.join(",", row);
+            }
+        } catch (NumberFormatException e) {
+            return "the numbers of row " + String.join(",", row);
+        }
+        if (row.size() == 6 && (row.get(5).isEmpty() || parseTime(row.get(5)) == NO_TIME
+                || !LocalDateTime.ofEpochSecond(parseTime(row.get(5)), 0, ZoneOffset.UTC).format(formatter)
+                        .equals(row.get(5)))) {
+            return "the Date-Time of row " + String.join(",", row);
+        }
+        return null;
+    }
+
+    private static long parseTime(String value) {
+        if (value.isEmpty()) {
+            return NO_TIME;
+        }
+        try {
+            return LocalDateTime.parse(value, formatter).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            return NO_TIME;
+        }
+    }
+}
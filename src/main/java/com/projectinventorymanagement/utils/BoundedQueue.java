@@ -0,0 +1,186 @@
+package com.projectinventorymanagement.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-size queue for any number of producers and consumers, without locks
+ * (D. Vyukov's bounded MPMC queue). Each slot carries a sequence number that
+ * tells whether it is free for the producer at a position or filled for the
+ * consumer at it, so a producer and a consumer only meet at the slot they
+ * both claimed with one compare-and-set on their own position counter.
+ *
+ * put() waits while the queue is full, which is how a slow consumer holds its
+ * producers back, and take() waits while it is empty; both spin briefly, then
+ * park for short intervals. Once close() was called and the queue is empty,
+ * take() returns null, so consumers end after the last element.
+ *
+ * Elements come out in the order their producers claimed a position, so
+ * those of any one producer come out in the order it put them.
+ */
+public final class BoundedQueue<E> {
+    private static final int SPINS = 64;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+    private volatile boolean closed;
+
+    // Statistics for reports
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder depthSum = new LongAdder();
+    private final LongAdder fullWaits = new LongAdder();
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    /**
+     * @param capacity Rounded up to a power of two.
+     */
+    public BoundedQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Adds the element if there is room, without waiting.
+     */
+    public boolean offer(E element) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    slots[slot] = element;
+                    sequences.set(slot, position + 1); // <- Publishes the element to the consumer
+                    recordDepth(position + 1 - dequeuePosition.get());
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false; // <- The slot still holds the element of the previous round
+            } else {
+                position = enqueuePosition.get(); // <- Another producer took this position
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element, or returns null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    E element = (E) slots[slot];
+                    slots[slot] = null;
+                    sequences.set(slot, position + mask + 1); // <- Free for the producer one round later
+                    return element;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Adds the element, waiting while the queue is full.
+     * @return false if the queue was closed meanwhile; the element was not added.
+     */
+    public boolean put(E element) {
+        if (offer(element)) {
+            return true;
+        }
+        fullWaits.increment();
+        for (int attempt = 0; !closed; attempt++) {
+            if (offer(element)) {
+                return true;
+            }
+            backOff(attempt);
+        }
+        return false;
+    }
+
+    /**
+     * Removes the oldest element, waiting while the queue is empty.
+     * @return null once the queue is closed and empty.
+     */
+    public E take() {
+        for (int attempt = 0; ; attempt++) {
+            E element = poll();
+            if (element != null) {
+                return element;
+            }
+            if (closed) {
+                return poll(); // <- Whatever was put before close()
+            }
+            backOff(attempt);
+        }
+    }
+
+    /**
+     * Tells the consumers that nothing more is coming; call it once all
+     * producers are done.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // Approximate while producers and consumers are running
+    public int size() {
+        return (int) Math.max(0, enqueuePosition.get() - dequeuePosition.get());
+    }
+
+    // The average number of elements queued, as seen by producers right after each put
+    public double averageDepth() {
+        long count = puts.sum();
+        return count == 0 ? 0 : (double) depthSum.sum() / count;
+    }
+
+    public long maxDepth() {
+        return maxDepth.get();
+    }
+
+    // How often a producer found the queue full and had to wait
+    public long fullWaits() {
+        return fullWaits.sum();
+    }
+
+    private void recordDepth(long depth) {
+        puts.increment();
+        depthSum.add(depth);
+        if (depth > maxDepth.get()) {
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    private static void backOff(int attempt) {
+        if (attempt < SPINS) {
+            Thread.onSpinWait();
+        } else if (attempt < 2 * SPINS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
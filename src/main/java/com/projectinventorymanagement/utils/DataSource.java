@@ -3,7 +3,36 @@ package com.projectinventorymanagement.utils;
 import java.util.HashMap;
 import java.util.ArrayList;
 
+/**
+ * Storage backend for a table. Implementations are discovered with
+ * ServiceLoader (see DataSources) or passed to DatabaseBase explicitly.
+ */
 public interface DataSource {
     HashMap<Integer, ArrayList<String>> readData(String source);
     void writeData(String source, HashMap<Integer, ArrayList<String>> data);
+
+    // Name used to select this backend, e.g. -Dinventory.datasource.ppe=text
+    String getName();
+
+    // Whether this backend is able to store the given table
+    default boolean supports(String source) {
+        return true;
+    }
+
+    /**
+     * Reads the table and records in state where reading stopped.
+     * Backends that cannot read incrementally leave the state invalid.
+     */
+    default HashMap<Integer, ArrayList<String>> readData(String source, TailState state) {
+        state.invalidate();
+        return readData(source);
+    }
+
+    /**
+     * Adds rows appended since state was recorded to data.
+     * @return false if the table must be read again in full.
+     */
+    default boolean readTail(String source, TailState state, HashMap<Integer, ArrayList<String>> data) {
+        return false;
+    }
 }
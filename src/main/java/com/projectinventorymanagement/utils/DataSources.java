@@ -0,0 +1,51 @@
+package com.projectinventorymanagement.utils;
+
+import java.util.HashMap;
+import java.util.ServiceLoader;
+
+/**
+ * Chooses the storage backend for each table.
+ * Lookup order: a backend registered for the table, then the backend named by
+ * -Dinventory.datasource.<table> or -Dinventory.datasource, then plain text.
+ * Named backends are found through ServiceLoader, so a new backend only needs
+ * a META-INF/services entry for com.projectinventorymanagement.utils.DataSource.
+ */
+public class DataSources {
+    private static final HashMap<String, DataSource> registered = new HashMap<>();
+
+    private DataSources() {
+    }
+
+    /**
+     * Uses the given backend for a table from now on.
+     * @param source The table name (file name without extension).
+     * @param dataSource The backend to use.
+     */
+    public static synchronized void register(String source, DataSource dataSource) {
+        if (!dataSource.supports(source)) {
+            throw new IllegalArgumentException(dataSource.getName() + " backend cannot store table: " + source);
+        }
+        registered.put(source, dataSource);
+    }
+
+    /**
+     * Returns the backend that should store the given table.
+     * @param source The table name (file name without extension).
+     */
+    public static synchronized DataSource forTable(String source) {
+        DataSource dataSource = registered.get(source);
+        if (dataSource != null) {
+            return dataSource;
+        }
+        String name = System.getProperty("inventory.datasource." + source, System.getProperty("inventory.datasource"));
+        if (name != null && !name.equals(TextFileDataSource.NAME)) {
+            for (DataSource candidate : ServiceLoader.load(DataSource.class)) {
+                if (candidate.getName().equals(name) && candidate.supports(source)) {
+                    return candidate;
+                }
+            }
+            System.err.println("No " + name + " backend available for table " + source + ", using text");
+        }
+        return new TextFileDataSource();
+    }
+}
@@ -1,9 +1,13 @@
 package com.projectinventorymanagement.utils;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
 
 public class FileHandler2 {
     private static final String DATA_PATH = "data/";
@@ -25,20 +29,31 @@ public class FileHandler2 {
 
     /**
      * Saves the given data (boundList) to a file.
+     * Rows are written in index order into a temporary file which then replaces the
+     * original, so a crash mid-write never leaves a half-written table behind.
      * @param filename The base file name (without extension).
      * @param data The HashMap representing rows of data.
      */
     public static void saveToFile(String filename, HashMap<Integer, ArrayList<String>> data) {
         fileExist(filename);
         String fileNameWithExtension = filename + ".txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_PATH + fileNameWithExtension))) {
-            for (int i = 0; i < data.size(); i++) {
-                ArrayList<String> row = data.get(i);
-                if (row != null) {
-                    writer.write(String.join(",", row));
-                    writer.newLine();
+        File target = new File(DATA_PATH + fileNameWithExtension);
+        File temp = new File(DATA_PATH + fileNameWithExtension + ".tmp");
+        try {
+            try (FileOutputStream output = new FileOutputStream(temp);
+                    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output))) {
+                // Iterate by key so rows after a deleted index are not dropped
+                for (ArrayList<String> row : new TreeMap<>(data).values()) {
+                    if (row != null) {
+                        writer.write(String.join(",", row));
+                        writer.newLine();
+                    }
                 }
+                writer.flush();
+                output.getFD().sync(); // <- Make the new contents durable before they replace the old file
             }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
             System.out.println("File saved successfully: " + fileNameWithExtension);
         } catch (IOException e) {
             System.err.println("Error writing to file: " + fileNameWithExtension);
@@ -53,17 +68,36 @@ public class FileHandler2 {
      * @return A HashMap where the key is the row index and the value is an ArrayList of String values.
      */
     public static HashMap<Integer, ArrayList<String>> loadFromFile(String filename) {
+        return loadFromFile(filename, null);
+    }
+
+    /**
+     * Loads data from a file and records in state where reading stopped, so that
+     * {@link #loadTail} can later pick up only the lines appended after that.
+     * @param filename The base file name (without extension).
+     * @param state Receives the read position (may be null).
+     */
+    public static HashMap<Integer, ArrayList<String>> loadFromFile(String filename, TailState state) {
         fileExist(filename);
         String fileNameWithExtension = filename + ".txt";
+        File file = new File(DATA_PATH + fileNameWithExtension);
         HashMap<Integer, ArrayList<String>> data = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(DATA_PATH + fileNameWithExtension))) {
+        try (LineReader reader = new LineReader(file, 0)) {
+            long headerChecksum = 0;
             String line;
-            int row = 0;
             while ((line = reader.readLine()) != null) {
+                if (data.isEmpty()) {
+                    headerChecksum = checksum(line);
+                }
                 // Split each line by commas and store as an ArrayList
-                ArrayList<String> rowData = new ArrayList<>(Arrays.asList(line.split(",")));
-                data.put(row, rowData);
-                row++;
+                data.put(data.size(), new ArrayList<>(Arrays.asList(line.split(","))));
+            }
+            if (state != null) {
+                state.capture(file, reader.getOffset(), data.size(), headerChecksum);
+                if (reader.isPartial()) {
+                    // The last row may still be growing, so it cannot be used as a tail position
+                    state.invalidate();
+                }
             }
             System.out.println("File loaded successfully: " + fileNameWithExtension);
         } catch (IOException e) {
@@ -72,4 +106,129 @@ public class FileHandler2 {
         }
         return data;
     }
+
+    /**
+     * Adds the rows appended to a file since state was captured.
+     * @param filename The base file name (without extension).
+     * @param state The position of the previous read; updated on success.
+     * @param data The rows read so far; new rows get the following indexes.
+     * @return false if the file was truncated or rewritten and must be loaded again in full.
+     */
+    public static boolean loadTail(String filename, TailState state, HashMap<Integer, ArrayList<String>> data) {
+        File file = new File(DATA_PATH + filename + ".txt");
+        try {
+            if (!state.onlyAppended(file)) {
+                return false;
+            }
+            if (state.unchanged(file)) {
+                return true;
+            }
+            if (state.rows > 0) {
+                try (LineReader header = new LineReader(file, 0)) {
+                    if (checksum(header.readLine()) != state.headerChecksum) {
+                        return false; // <- Grown, but the header differs: rewritten
+                    }
+                }
+            }
+            ArrayList<ArrayList<String>> appended = new ArrayList<>();
+            long offset;
+            try (LineReader reader = new LineReader(file, state.offset)) {
+                String line;
+                while ((line = reader.readLine()) != null && !reader.isPartial()) {
+                    appended.add(new ArrayList<>(Arrays.asList(line.split(","))));
+                }
+                offset = reader.getOffset();
+            }
+            int row = state.rows;
+            for (int i = 0; i < appended.size(); i++) {
+                if (data.containsKey(row + i)) {
+                    return false; // <- Rows were added in memory meanwhile, indexes would clash
+                }
+            }
+            for (ArrayList<String> rowData : appended) {
+                data.put(row++, rowData);
+            }
+            state.capture(file, offset, row, state.headerChecksum);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error reading file tail: " + filename + ".txt");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static long checksum(String line) {
+        CRC32 crc = new CRC32();
+        if (line != null) {
+            crc.update(line.getBytes());
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Reads lines from a byte offset, keeping track of the offset after the last
+     * complete (newline terminated) line.
+     */
+    private static class LineReader implements Closeable {
+        private final InputStream input;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final byte[] buffer = new byte[64 * 1024];
+        private int position;
+        private int limit;
+        private long offset;
+        private boolean partial;
+
+        LineReader(File file, long offset) throws IOException {
+            this.input = new FileInputStream(file);
+            this.input.skipNBytes(offset);
+            this.offset = offset;
+        }
+
+        // Returns the next line, or null at the end of the file
+        String readLine() throws IOException {
+            line.reset();
+            while (true) {
+                if (position == limit) {
+                    limit = input.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (line.size() == 0) {
+                            return null;
+                        }
+                        partial = true; // <- Last line has no newline yet
+                        return decode();
+                    }
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                line.write(buffer, start, position - start);
+                if (position < limit) {
+                    position++; // <- Skip the newline
+                    offset += line.size() + 1;
+                    return decode();
+                }
+            }
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        boolean isPartial() {
+            return partial;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+
+        private String decode() {
+            String text = line.toString();
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+        }
+    }
 }
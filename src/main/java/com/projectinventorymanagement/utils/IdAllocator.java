@@ -0,0 +1,122 @@
+package com.projectinventorymanagement.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique, increasing 64-bit IDs, e.g. for transactions.
+ *
+ * IDs are leased from data/<name>.seq in blocks: the file holds the first ID
+ * nobody has leased yet, and leasing a block advances it under an exclusive
+ * file lock and forces it to disk. Within a block, IDs come from an atomic
+ * counter without locks or I/O. IDs left in a block when the application
+ * exits are skipped, so there are gaps, but no ID is handed out twice, also
+ * across restarts and across instances that share data/.
+ *
+ * A new block never starts below the current time in seconds shifted left by
+ * TIME_SHIFT bits, so IDs also sort by when their block was leased and stay
+ * far above the old random IDs (below 1,000,000), even if the file is lost.
+ */
+public final class IdAllocator {
+    private static final String DATA_PATH = "data/";
+    private static final int TIME_SHIFT = 16; // <- Up to 65536 IDs per second before the counter runs ahead of the clock
+    private static final int BLOCK_SIZE = Integer.getInteger("inventory.idBlockSize", 1024);
+
+    private static final ConcurrentHashMap<String, IdAllocator> allocators = new ConcurrentHashMap<>();
+
+    private final File file;
+    private volatile Block block = new Block(0, 0); // <- Empty, the first next() leases
+
+    // IDs [next, end) of a leased block
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private IdAllocator(String name) {
+        this.file = new File(DATA_PATH + name + ".seq");
+    }
+
+    /**
+     * Returns the allocator of a sequence, one per name and application, since
+     * file locks do not keep two channels of the same process apart.
+     * @param name The sequence, stored in data/<name>.seq.
+     */
+    public static IdAllocator forName(String name) {
+        return allocators.computeIfAbsent(name, IdAllocator::new);
+    }
+
+    /**
+     * Returns the next ID. Only the call that exhausts a block touches the disk.
+     */
+    public long next() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            synchronized (this) {
+                if (block == current) { // <- Another thread may have leased already
+                    block = lease();
+                }
+            }
+        }
+    }
+
+    // Advances the stored sequence by one block, under the file lock
+    private Block lease() {
+        long floor = (System.currentTimeMillis() / 1000) << TIME_SHIFT;
+        file.getParentFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                // Never below this instance's last block, which may have come from the fallback below
+                long start = Math.max(Math.max(readSequence(channel), floor), block.end);
+                byte[] next = (Long.toString(start + BLOCK_SIZE) + "\n").getBytes(StandardCharsets.UTF_8);
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(next), 0);
+                channel.force(true); // <- The block is ours only once the file says so
+                return new Block(start, start + BLOCK_SIZE);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            // Without the file, a block from the clock alone is still unique within this instance
+            System.err.println("Error leasing IDs from: " + file.getName());
+            e.printStackTrace();
+            System.err.println("Warning: IDs from " + file.getName() + " are now only unique within this process;"
+                    + " another instance sharing data/ may hand out the same ones");
+            long start = Math.max(floor, block.end);
+            return new Block(start, start + BLOCK_SIZE);
+        }
+    }
+
+    private long readSequence(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 64));
+        channel.read(buffer, 0);
+        String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring unreadable sequence in: " + file.getName());
+            return 0;
+        }
+    }
+}
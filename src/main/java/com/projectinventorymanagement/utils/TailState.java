@@ -0,0 +1,72 @@
+package com.projectinventorymanagement.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Remembers how far a table file has been read, so a later reload can parse
+ * only what was appended since. The size, modification time, file key and a
+ * checksum of the header line tell whether the file was only appended to, or
+ * truncated / rewritten and therefore needs a full reload.
+ */
+public class TailState {
+    long offset;          // <- Byte offset just after the last row read
+    int rows;             // <- Number of rows read so far
+    long size;
+    long lastModified;
+    Object fileKey;       // <- Changes when the file is replaced by a rename (may be null)
+    long headerChecksum;
+    boolean valid;
+
+    public int getRows() {
+        return rows;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    // Forget the position so the next reload reads everything
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Records the current attributes of the file after a read.
+     */
+    void capture(File file, long offset, int rows, long headerChecksum) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        this.offset = offset;
+        this.rows = rows;
+        this.size = attributes.size();
+        this.lastModified = attributes.lastModifiedTime().toMillis();
+        this.fileKey = attributes.fileKey();
+        this.headerChecksum = headerChecksum;
+        this.valid = true;
+    }
+
+    /**
+     * Returns true if the file is unchanged or has only grown since the capture.
+     * The header checksum is compared by the caller, which knows the format.
+     */
+    boolean onlyAppended(File file) throws IOException {
+        if (!valid || !file.exists()) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        if (fileKey != null && !fileKey.equals(attributes.fileKey())) {
+            return false; // <- Replaced by a rewrite
+        }
+        if (attributes.size() < size || attributes.lastModifiedTime().toMillis() < lastModified) {
+            return false; // <- Truncated or restored from an older copy
+        }
+        return attributes.size() > size || attributes.lastModifiedTime().toMillis() == lastModified;
+    }
+
+    boolean unchanged(File file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return attributes.size() == size && attributes.lastModifiedTime().toMillis() == lastModified;
+    }
+}
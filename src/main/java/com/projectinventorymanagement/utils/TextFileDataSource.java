@@ -0,0 +1,36 @@
+package com.projectinventorymanagement.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Default backend: one comma separated line per row in data/<name>.txt.
+ */
+public class TextFileDataSource implements DataSource {
+    public static final String NAME = "text";
+
+    @Override
+    public HashMap<Integer, ArrayList<String>> readData(String source) {
+        return FileHandler2.loadFromFile(source);
+    }
+
+    @Override
+    public HashMap<Integer, ArrayList<String>> readData(String source, TailState state) {
+        return FileHandler2.loadFromFile(source, state);
+    }
+
+    @Override
+    public boolean readTail(String source, TailState state, HashMap<Integer, ArrayList<String>> data) {
+        return FileHandler2.loadTail(source, state, data);
+    }
+
+    @Override
+    public void writeData(String source, HashMap<Integer, ArrayList<String>> data) {
+        FileHandler2.saveToFile(source, data);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,362 @@
+package com.projectinventorymanagement.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Redo journal for changes that span several tables, in data/journal.log.
+ *
+ * A unit of work collects the row records its changes append to the table
+ * logs, which hold them back meanwhile (see WriteAheadLog). When the unit ends,
+ * its records and a commit line are written to the journal and forced to disk,
+ * and only then are the table logs released, each followed by a UNIT marker.
+ * So no table file sees a record of a unit the journal does not have in full.
+ *
+ * When a table has its log (or a checkpoint) on disk with a unit's marker, the
+ * journal records the unit as done for that table, and once every unit is
+ * done everywhere the journal is discarded. On startup, each table that loads
+ * replays the committed units the journal has for it and its log does not;
+ * units without a commit line never touched a table and are dropped.
+ *
+ * Lines have the form "crc,body" like the table logs, with the bodies
+ * "R,unit,table,op,index,row", "C,unit" and "D,unit,table".
+ */
+public final class UnitOfWorkJournal {
+    private static final File file = new File("data/journal.log");
+    private static final ThreadLocal<Unit> current = new ThreadLocal<>();
+    private static final AtomicLong nextUnit = new AtomicLong(System.currentTimeMillis() * 1000); // <- Unique across runs
+
+    /**
+     * One row operation of a unit on one table.
+     */
+    public record Record(String table, WriteAheadLog.Op op, int index, String row) {
+    }
+
+    /**
+     * A committed unit's records for one table, as handed out by recover().
+     */
+    public record Recovered(long unit, List<Record> records) {
+    }
+
+    // Guarded by the class lock
+    private static boolean loaded;
+    private static final LinkedHashMap<Long, Set<String>> pending = new LinkedHashMap<>(); // <- Committed unit -> tables not done
+    private static final HashMap<Long, List<Record>> committedRecords = new HashMap<>(); // <- From earlier runs, for recovery
+    private static final Set<String> recoveredTables = new HashSet<>();
+    private static FileOutputStream output;
+    private static Writer writer;
+
+    private UnitOfWorkJournal() {
+    }
+
+    private static final class Unit {
+        final long id;
+        final List<Record> records = new ArrayList<>();
+        final Set<WriteAheadLog> logs = new LinkedHashSet<>(); // <- Held until the commit is on disk
+
+        Unit(long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Runs the work as one unit: its table changes reach the table logs only
+     * after they are all in the journal, and the tables are flushed once at the
+     * end (see WriteBehindFlusher.batch). Units on the same thread nest.
+     */
+    public static <T> T run(Supplier<T> work) {
+        if (current.get() != null) {
+            return work.get(); // <- Part of the enclosing unit
+        }
+        return WriteBehindFlusher.batch(() -> {
+            Unit unit = new Unit(nextUnit.getAndIncrement());
+            current.set(unit);
+            try {
+                return work.get();
+            } finally {
+                current.remove();
+                commit(unit); // <- Also after a failure, the changes made are in memory already
+            }
+        });
+    }
+
+    /**
+     * Called by a table for each record it appends to its log. Outside a unit
+     * this does nothing; inside one, the record joins the unit and the log is
+     * held until the unit is committed.
+     */
+    public static void record(String table, WriteAheadLog log, WriteAheadLog.Op op, int index, String row) {
+        Unit unit = current.get();
+        if (unit == null) {
+            return;
+        }
+        join(log);
+        unit.records.add(new Record(table, op, index, row));
+    }
+
+    /**
+     * Holds a table's log for the unit running on this thread, if any, until
+     * the unit is committed.
+     */
+    public static void join(WriteAheadLog log) {
+        Unit unit = current.get();
+        if (unit != null && unit.logs.add(log)) {
+            log.hold();
+        }
+    }
+
+    /**
+     * Returns, once per table and run, the committed units the table does not
+     * have yet, oldest first.
+     * @param logged The units whose markers the table found in its log.
+     */
+    public static synchronized List<Recovered> recover(String table, Set<Long> logged) {
+        load();
+        List<Recovered> missing = new ArrayList<>();
+        if (!recoveredTables.add(table)) {
+            return missing;
+        }
+        List<Long> present = new ArrayList<>();
+        for (Map.Entry<Long, Set<String>> entry : pending.entrySet()) {
+            long unit = entry.getKey();
+            List<Record> records = committedRecords.get(unit);
+            if (records == null || !entry.getValue().contains(table)) {
+                continue; // <- Committed in this run, or done for this table
+            }
+            if (logged.contains(unit)) {
+                present.add(unit);
+                continue;
+            }
+            List<Record> own = new ArrayList<>();
+            for (Record record : records) {
+                if (record.table().equals(table)) {
+                    own.add(record);
+                }
+            }
+            missing.add(new Recovered(unit, own));
+        }
+        resolve(table, present, false); // <- Already on disk in the table's log
+        return missing;
+    }
+
+    /**
+     * Records that the given units are on disk in the table's own files, and
+     * discards the journal once no unit needs it any more.
+     * @param force Whether the record must be on disk before returning, e.g.
+     *              because the table log holding the markers is about to go.
+     */
+    public static synchronized void resolve(String table, Collection<Long> units, boolean force) {
+        if (units.isEmpty()) {
+            return;
+        }
+        load();
+        for (long unit : units) {
+            Set<String> tables = pending.get(unit);
+            if (tables == null || !tables.remove(table)) {
+                continue;
+            }
+            if (tables.isEmpty()) {
+                pending.remove(unit);
+                committedRecords.remove(unit);
+            }
+            if (!pending.isEmpty()) {
+                writeLine("D," + unit + "," + table);
+            }
+        }
+        if (pending.isEmpty()) {
+            discard();
+            return;
+        }
+        sync(force);
+    }
+
+    /**
+     * Returns the number of committed units some table still needs.
+     */
+    public static synchronized int pendingUnits() {
+        load();
+        return pending.size();
+    }
+
+    private static void commit(Unit unit) {
+        if (unit.records.isEmpty()) {
+            for (WriteAheadLog log : unit.logs) {
+                log.release(); // <- Joined, but nothing changed
+            }
+            return;
+        }
+        synchronized (UnitOfWorkJournal.class) {
+            load();
+            Set<String> tables = new LinkedHashSet<>();
+            for (Record record : unit.records) {
+                writeLine("R," + unit.id + "," + record.table() + "," + record.op().code() + "," + record.index()
+                        + "," + (record.row() == null ? "" : record.row()));
+                tables.add(record.table());
+            }
+            writeLine("C," + unit.id);
+            sync(true);
+            pending.put(unit.id, tables);
+        }
+        for (WriteAheadLog log : unit.logs) {
+            log.release(unit.id);
+        }
+    }
+
+    // Reads what an earlier run left behind, the first time the journal is used
+    private static void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        LinkedHashMap<Long, List<Record>> records = new LinkedHashMap<>();
+        Set<Long> committed = new HashSet<>();
+        List<String[]> done = new ArrayList<>();
+        long maxUnit = 0;
+        long good = 0; // <- Bytes up to the end of the last intact line
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = input.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String body = verify(line.toString(StandardCharsets.UTF_8));
+                if (body == null) {
+                    break;
+                }
+                String[] parts = body.split(",", 6);
+                long unit = Long.parseLong(parts[1]);
+                maxUnit = Math.max(maxUnit, unit);
+                switch (parts[0]) {
+                    case "R" -> records.computeIfAbsent(unit, k -> new ArrayList<>()).add(new Record(parts[2],
+                            WriteAheadLog.Op.fromCode(parts[3]), Integer.parseInt(parts[4]), parts[5]));
+                    case "C" -> committed.add(unit);
+                    case "D" -> done.add(parts);
+                    default -> { }
+                }
+                good += line.size() + 1;
+                line.reset();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading journal: " + file.getName());
+            e.printStackTrace();
+        }
+        if (file.length() > good) {
+            // Later lines would follow the garbage, where the next load stops before them
+            truncateTo(good);
+        }
+        int dropped = 0;
+        for (Map.Entry<Long, List<Record>> entry : records.entrySet()) {
+            if (!committed.contains(entry.getKey())) {
+                dropped++; // <- Never reached a table log
+                continue;
+            }
+            Set<String> tables = new LinkedHashSet<>();
+            for (Record record : entry.getValue()) {
+                tables.add(record.table());
+            }
+            pending.put(entry.getKey(), tables);
+            committedRecords.put(entry.getKey(), entry.getValue());
+        }
+        for (String[] parts : done) {
+            long unit = Long.parseLong(parts[1]);
+            Set<String> tables = pending.get(unit);
+            if (tables != null && tables.remove(parts[2]) && tables.isEmpty()) {
+                pending.remove(unit);
+                committedRecords.remove(unit);
+            }
+        }
+        nextUnit.accumulateAndGet(maxUnit + 1, Math::max);
+        if (dropped > 0) {
+            System.out.println("Discarded " + dropped + " incomplete units of work from the journal");
+        }
+        if (pending.isEmpty()) {
+            discard();
+        }
+    }
+
+    // Cuts a tail torn by a crash off the journal; only called before the writer is opened
+    private static void truncateTo(long offset) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(offset);
+            raf.getFD().sync();
+            System.err.println("Truncated torn journal tail of " + file.getName() + " at byte " + offset);
+        } catch (IOException e) {
+            System.err.println("Error truncating journal: " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    private static String verify(String line) {
+        int crcEnd = line.indexOf(',');
+        if (crcEnd < 0) {
+            return null;
+        }
+        String body = line.substring(crcEnd + 1);
+        try {
+            return Long.parseLong(line.substring(0, crcEnd), 16) == WriteAheadLog.checksum(body) ? body : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void writeLine(String body) {
+        try {
+            if (writer == null) {
+                file.getParentFile().mkdirs();
+                output = new FileOutputStream(file, true);
+                writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            }
+            writer.write(Long.toHexString(WriteAheadLog.checksum(body)) + "," + body);
+            writer.write("\n");
+        } catch (IOException e) {
+            System.err.println("Error appending to journal: " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    private static void sync(boolean fsync) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            if (fsync) {
+                output.getFD().sync();
+            }
+        } catch (IOException e) {
+            System.err.println("Error syncing journal: " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    private static void discard() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + file.getName());
+            }
+            writer = null;
+            output = null;
+        }
+        if (file.exists() && !file.delete()) {
+            System.err.println("Error discarding journal: " + file.getName());
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.projectinventorymanagement.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of row-level operations for a single table.
+ * Each mutation is written as one line "crc,op,index,row" to data/<name>.log,
+ * so a write costs only the size of the changed row instead of the whole table.
+ * Appends are buffered in memory until {@link #sync(boolean)} is called, which
+ * lets the write-behind flusher decide how often the log reaches the disk.
+ * The log is replayed on top of the base file when the table is loaded and
+ * discarded whenever the base file is rewritten (checkpoint).
+ *
+ * While a unit of work that changes this table is open (see UnitOfWorkJournal),
+ * the log is held: its records, and every record appended after them, stay in
+ * memory until the unit is in the journal, and then go out in order followed
+ * by a UNIT marker naming the unit.
+ */
+public class WriteAheadLog {
+    private static final String DATA_PATH = "data/";
+
+    public enum Op {
+        PUT("P"), UPDATE("U"), DELETE("D"),
+        UNIT("M"); // <- Marker: the records of the unit whose id is in the row field precede it
+
+        private final String code;
+
+        Op(String code) {
+            this.code = code;
+        }
+
+        String code() {
+            return code;
+        }
+
+        static Op fromCode(String code) {
+            for (Op op : values()) {
+                if (op.code.equals(code)) {
+                    return op;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Receives each valid record while the log is replayed.
+     */
+    public interface Replayer {
+        void apply(Op op, int index, String row);
+    }
+
+    private final File file;
+    private int records; // <- Records written since the last checkpoint
+    private FileOutputStream output;
+    private Writer writer;
+    private int holds; // <- Open units of work with records in this log
+    private final List<String> heldLines = new ArrayList<>();
+    private final List<Long> heldUnits = new ArrayList<>();
+    private final List<Long> writtenUnits = new ArrayList<>(); // <- Markers written, not yet forced to disk
+    private final List<Long> syncedUnits = new ArrayList<>(); // <- Markers forced to disk
+
+    /**
+     * @param filename The base file name of the table (without extension).
+     */
+    public WriteAheadLog(String filename) {
+        this.file = new File(DATA_PATH + filename + ".log");
+    }
+
+    /**
+     * Appends one operation to the log buffer.
+     * @param op The kind of row operation.
+     * @param index The row index the operation applies to.
+     * @param row The serialized row (ignored for DELETE).
+     */
+    public synchronized void append(Op op, int index, String row) {
+        String body = op.code + "," + index + "," + (op == Op.DELETE || row == null ? "" : row);
+        String line = Long.toHexString(checksum(body)) + "," + body;
+        records++;
+        if (holds > 0) {
+            heldLines.add(line); // <- Stays behind the open unit's records
+            return;
+        }
+        write(line);
+    }
+
+    /**
+     * Appends the marker of a unit of work whose records were appended before.
+     */
+    public synchronized void appendUnitMarker(long unit) {
+        append(Op.UNIT, 0, Long.toString(unit));
+        (holds > 0 ? heldUnits : writtenUnits).add(unit);
+    }
+
+    /**
+     * Holds back this and later records until {@link #release(long)}.
+     */
+    public synchronized void hold() {
+        holds++;
+    }
+
+    /**
+     * Ends a hold once the unit is in the journal: appends its marker and, if
+     * no other unit is still open, writes out everything held back.
+     */
+    public synchronized void release(long unit) {
+        appendUnitMarker(unit);
+        release();
+    }
+
+    /**
+     * Ends a hold without a marker, for a unit that recorded nothing.
+     */
+    public synchronized void release() {
+        if (--holds > 0) {
+            return;
+        }
+        for (String line : heldLines) {
+            write(line);
+        }
+        heldLines.clear();
+        writtenUnits.addAll(heldUnits);
+        heldUnits.clear();
+        notifyAll();
+    }
+
+    /**
+     * Whether some records are held back for an open unit of work.
+     */
+    public synchronized boolean isHeld() {
+        return holds > 0;
+    }
+
+    /**
+     * Waits until no records are held back.
+     */
+    public synchronized void awaitUnheld() {
+        while (holds > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns and forgets the units whose markers were forced to disk, or with
+     * all=true every unit whose marker was written (for a checkpoint, which
+     * contains them in the base file).
+     */
+    public synchronized List<Long> takeUnits(boolean all) {
+        List<Long> units = new ArrayList<>(syncedUnits);
+        syncedUnits.clear();
+        if (all) {
+            units.addAll(writtenUnits);
+            writtenUnits.clear();
+        }
+        return units;
+    }
+
+    private void write(String line) {
+        try {
+            if (writer == null) {
+                file.getParentFile().mkdirs();
+                output = new FileOutputStream(file, true);
+                writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            }
+            writer.write(line);
+            writer.write("\n");
+        } catch (IOException e) {
+            System.err.println("Error appending to log: " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes buffered records to the file.
+     * @param fsync Whether to also force them to the storage device.
+     */
+    public synchronized void sync(boolean fsync) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            if (fsync) {
+                output.getFD().sync();
+                syncedUnits.addAll(writtenUnits);
+                writtenUnits.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("Error syncing log: " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replays the intact records that start at or after the given byte offset
+     * (0 for the whole log). Replay stops at the first record whose checksum does
+     * not match, which is what a write torn by a crash looks like.
+     * @return The byte offset after the last intact record, or -1 if the log is
+     *         now shorter than offset (it was truncated by a checkpoint).
+     */
+    public synchronized long replayFrom(long offset, Replayer replayer) {
+        if (writer != null) {
+            sync(false); // <- Our own buffered records must be readable too
+        }
+        if (!file.exists()) {
+            return offset == 0 ? 0 : -1;
+        }
+        if (file.length() < offset) {
+            return -1;
+        }
+        if (offset == 0) {
+            records = 0;
+        }
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            input.skipNBytes(offset);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = input.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                if (!applyLine(line.toString(StandardCharsets.UTF_8), replayer)) {
+                    System.err.println("Ignoring torn log tail in " + file.getName() + " at byte " + offset);
+                    break;
+                }
+                offset += line.size() + 1;
+                records++;
+                line.reset();
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading log: " + file.getName());
+            e.printStackTrace();
+        }
+        return offset;
+    }
+
+    /**
+     * Cuts the log back to the given byte offset, as returned by replayFrom().
+     * Drops a tail torn by a crash, so later records follow the last intact one
+     * instead of the garbage, where the next replay would stop before them.
+     */
+    public synchronized void truncateTo(long offset) {
+        if (!file.exists() || file.length() <= offset) {
+            return;
+        }
+        close(); // <- Reopened in append mode after the cut
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(offset);
+            raf.getFD().sync();
+            System.err.println("Truncated torn log tail of " + file.getName() + " at byte " + offset);
+        } catch (IOException e) {
+            System.err.println("Error truncating log: " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Discards the log once its operations are contained in the base file.
+     */
+    public synchronized void truncate() {
+        close();
+        if (file.exists() && !file.delete()) {
+            System.err.println("Error truncating log: " + file.getName());
+        }
+        records = 0;
+    }
+
+    /**
+     * Returns the number of records written since the last checkpoint.
+     */
+    public synchronized int size() {
+        return records;
+    }
+
+    private void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Error closing log: " + file.getName());
+        }
+        writer = null;
+        output = null;
+    }
+
+    private boolean applyLine(String line, Replayer replayer) {
+        int crcEnd = line.indexOf(',');
+        if (crcEnd < 0) {
+            return false;
+        }
+        String body = line.substring(crcEnd + 1);
+        try {
+            if (Long.parseLong(line.substring(0, crcEnd), 16) != checksum(body)) {
+                return false;
+            }
+            int opEnd = body.indexOf(',');
+            int indexEnd = body.indexOf(',', opEnd + 1);
+            Op op = Op.fromCode(body.substring(0, opEnd));
+            if (op == null) {
+                return false;
+            }
+            int index = Integer.parseInt(body.substring(opEnd + 1, indexEnd));
+            replayer.apply(op, index, body.substring(indexEnd + 1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    static long checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,213 @@
+package com.projectinventorymanagement.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Background flusher that coalesces writes to dirty tables.
+ * Tables mark themselves dirty on every change; depending on the durability
+ * mode the flusher writes them immediately, or once per interval / once enough
+ * changes have piled up, so a burst of changes costs one write per table.
+ *
+ * The mode is read from the "inventory.durability" system property
+ * (sync, group or async) and defaults to group commit.
+ *
+ * markDirty() returns when the change will be on disk: a future that
+ * completes once the flush covering it is done. Under group commit every
+ * change marked before a flush shares that flush's future (its group), so a
+ * writer that needs the acknowledgement waits on it for at most one interval
+ * plus the fsync; writers that don't simply ignore it. Under ASYNC the future
+ * only says the change was handed to the OS.
+ *
+ * The JavaFX thread never waits for a flush. Under SYNC_PER_OP its changes
+ * are flushed on a background thread right away instead of on the calling
+ * thread, so the mode is asynchronous for it; use the returned future (e.g.
+ * with FxAsync.whenDone) to act once they are on disk.
+ */
+public class WriteBehindFlusher {
+
+    public enum Durability {
+        SYNC_PER_OP,  // <- Flush and fsync after every change, on the calling thread unless it is the UI thread (see above)
+        GROUP_COMMIT, // <- Flush and fsync in the background, once per batch
+        ASYNC         // <- Hand batches to the OS in the background without fsync
+    }
+
+    /**
+     * A table whose pending changes can be written out.
+     */
+    public interface Flushable {
+        void flush(boolean fsync);
+    }
+
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("inventory.flushIntervalMs", 200);
+    private static final int DIRTY_THRESHOLD = Integer.getInteger("inventory.flushThreshold", 64);
+
+    private static final Set<Flushable> dirtyTables = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger pendingChanges = new AtomicInteger();
+    private static volatile Durability durability = parseDurability(System.getProperty("inventory.durability"));
+    private static final ThreadLocal<Set<Flushable>> batchTables = new ThreadLocal<>(); // <- Set while this thread runs a batch
+    private static final ThreadLocal<CompletableFuture<Void>> batchDone = new ThreadLocal<>(); // <- Completes with the batch's flush
+    private static volatile CompletableFuture<Void> group = new CompletableFuture<>(); // <- Completed by the next flush
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "write-behind-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        scheduler.scheduleWithFixedDelay(WriteBehindFlusher::flushPending, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        // Shutdown hook so buffered changes reach disk when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(WriteBehindFlusher::flushAll));
+    }
+
+    // Set the durability mode for all tables
+    public static void setDurability(Durability mode) {
+        durability = mode;
+        if (mode == Durability.SYNC_PER_OP) {
+            flushAll();
+        }
+    }
+
+    public static Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Records that a table has unwritten changes.
+     * @param table The table to flush.
+     * @return Completes once the changes marked so far are written out as the
+     *         mode requires, or exceptionally if the flush failed.
+     */
+    public static CompletableFuture<Void> markDirty(Flushable table) {
+        Set<Flushable> batch = batchTables.get();
+        if (batch != null) {
+            batch.add(table); // <- Marked for real when the batch ends
+            return batchDone.get();
+        }
+        if (durability == Durability.SYNC_PER_OP) {
+            if (BackgroundIO.onFxThread()) {
+                // <- Don't freeze the UI on fsync; the flush still starts right away
+                CompletableFuture<Void> flushed = BackgroundIO.run(() -> table.flush(true));
+                flushed.exceptionally(e -> {
+                    System.err.println("Error flushing table: " + e.getMessage());
+                    e.printStackTrace();
+                    return null;
+                });
+                return flushed;
+            }
+            table.flush(true);
+            return CompletableFuture.completedFuture(null);
+        }
+        dirtyTables.add(table);
+        CompletableFuture<Void> flushed = group; // <- Read after adding, see flush()
+        if (pendingChanges.incrementAndGet() == DIRTY_THRESHOLD) {
+            scheduler.execute(WriteBehindFlusher::flushPending);
+        }
+        return flushed;
+    }
+
+    /**
+     * Returns a future that completes once every change marked so far, by any
+     * thread, is written out as the mode requires.
+     */
+    public static CompletableFuture<Void> whenFlushed() {
+        if (durability == Durability.SYNC_PER_OP && dirtyTables.isEmpty()) {
+            return CompletableFuture.completedFuture(null); // <- Flushed by the writers themselves
+        }
+        return group;
+    }
+
+    /**
+     * Runs several changes as one write: tables changed by the work are marked
+     * dirty once, when it ends, so under SYNC_PER_OP each is flushed once
+     * instead of after every change. Batches on the same thread nest.
+     */
+    public static <T> T batch(Supplier<T> work) {
+        if (batchTables.get() != null) {
+            return work.get(); // <- Part of the enclosing batch
+        }
+        Set<Flushable> tables = new LinkedHashSet<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        batchTables.set(tables);
+        batchDone.set(done);
+        try {
+            return work.get();
+        } finally {
+            batchTables.remove();
+            batchDone.remove();
+            List<CompletableFuture<Void>> flushed = new ArrayList<>();
+            for (Flushable table : tables) {
+                flushed.add(markDirty(table));
+            }
+            CompletableFuture.allOf(flushed.toArray(CompletableFuture[]::new)).whenComplete((_, error) -> {
+                if (error != null) {
+                    done.completeExceptionally(error);
+                } else {
+                    done.complete(null);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes every dirty table out now with fsync, regardless of the mode.
+     */
+    public static void flushAll() {
+        flush(true);
+    }
+
+    private static void flushPending() {
+        flush(durability != Durability.ASYNC);
+    }
+
+    // The group is swapped before the dirty tables are taken: a writer that got
+    // the old group had added its table before, so this flush covers it.
+    private static synchronized void flush(boolean fsync) {
+        pendingChanges.set(0);
+        CompletableFuture<Void> flushed = group;
+        group = new CompletableFuture<>();
+        List<Flushable> batch = new ArrayList<>(dirtyTables);
+        dirtyTables.removeAll(batch);
+        RuntimeException failure = null;
+        for (Flushable table : batch) {
+            try {
+                table.flush(fsync);
+            } catch (RuntimeException e) {
+                System.err.println("Error flushing table: " + e.getMessage());
+                e.printStackTrace();
+                dirtyTables.add(table); // <- Retry with the next batch
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            flushed.completeExceptionally(failure);
+        } else {
+            flushed.complete(null);
+        }
+    }
+
+    private static Durability parseDurability(String value) {
+        if (value == null) {
+            return Durability.GROUP_COMMIT;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "sync":
+                return Durability.SYNC_PER_OP;
+            case "async":
+                return Durability.ASYNC;
+            default:
+                return Durability.GROUP_COMMIT;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.projectinventorymanagement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Malformed numeric options are usage errors (exit code 2), reported before
+ * any table loads or the password is asked for. Only Admin and Staff users
+ * may run commands.
+ */
+class HeadlessCliTest {
+
+    @BeforeEach
+    void clearData() throws IOException {
+        TestData.reset();
+    }
+
+    @Test
+    void nonNumericOptionsAreUsageErrors() {
+        assertEquals(2, HeadlessCli.run(new String[] {"--user", "admin", "import", "in.csv", "--batch", "many"}));
+        assertEquals(2, HeadlessCli.run(new String[] {"--user", "admin", "import", "in.csv", "--threads", "4x"}));
+        assertEquals(2, HeadlessCli.run(new String[] {"--user", "admin", "replay", "--threads", "two"}));
+        assertEquals(2, HeadlessCli.run(new String[] {"--user", "admin", "serve", "--port", "http"}));
+    }
+
+    @Test
+    void outOfRangeOptionsAreUsageErrors() {
+        assertEquals(2, HeadlessCli.run(new String[] {"--user", "admin", "import", "in.csv", "--batch", "0"}));
+        assertEquals(2, HeadlessCli.run(new String[] {"--user", "admin", "replay", "--threads", "-1"}));
+        assertEquals(2, HeadlessCli.run(new String[] {"--user", "admin", "serve", "--port", "70000"}));
+    }
+
+    @Test
+    void otherUserTypesAreRefused() throws IOException {
+        String hash = BCrypt.hashpw("secret", BCrypt.gensalt(4));
+        Files.writeString(TestData.DIRECTORY.toPath().resolve("user.txt"), """
+                UserID,Name,Username,Password,UserType,Email,Phone,isActive
+                1,Clerk,clerk,%1$s,Staff,clerk@example.com,1,true
+                2,Guest,guest,%1$s,Volunteer,guest@example.com,2,true
+                """.formatted(hash), StandardCharsets.UTF_8);
+
+        assertEquals(4, runWithPassword("secret", "--user", "guest", "compact"));
+        assertEquals(3, runWithPassword("wrong", "--user", "guest", "compact"));
+        assertEquals(0, runWithPassword("secret", "--user", "clerk", "stats"));
+    }
+
+    // Runs the CLI with the password on standard input, as a script would pipe it
+    private static int runWithPassword(String password, String... args) {
+        InputStream in = System.in;
+        System.setIn(new ByteArrayInputStream((password + "\n").getBytes(StandardCharsets.UTF_8)));
+        try {
+            return HeadlessCli.run(args);
+        } finally {
+            System.setIn(in);
+        }
+    }
+}
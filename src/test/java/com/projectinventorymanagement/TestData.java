@@ -0,0 +1,28 @@
+package com.projectinventorymanagement;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Tests run in target/test-data (see the surefire configuration), where the
+ * tables live in data/ like in a real installation. Clears that directory.
+ */
+public final class TestData {
+    public static final File DIRECTORY = new File("data");
+
+    private TestData() {
+    }
+
+    public static void reset() throws IOException {
+        if (DIRECTORY.exists()) {
+            try (Stream<Path> paths = Files.walk(DIRECTORY.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DIRECTORY.mkdirs();
+    }
+}
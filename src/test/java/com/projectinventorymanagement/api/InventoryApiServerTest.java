@@ -0,0 +1,166 @@
+package com.projectinventorymanagement.api;
+
+import com.projectinventorymanagement.TestData;
+import com.projectinventorymanagement.database.DatabaseContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test on loopback: many clients at once distribute the same item and
+ * read the stock. Every basket is answered, none oversells, and the stock and
+ * the transaction log agree afterwards. Also checks the request validation
+ * and the user type check. DatabaseContext is per JVM, so the server is
+ * started once for the class.
+ */
+class InventoryApiServerTest {
+    private static final int CLIENTS = 32;
+    private static final int REQUESTS_PER_CLIENT = 10;
+    private static final String PASSWORD = "secret";
+
+    private static InventoryApiServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        TestData.reset();
+        String hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4)); // <- Cheap rounds; the cache is not under test
+        write("user.txt", """
+                UserID,Name,Username,Password,UserType,Email,Phone,isActive
+                1,Clerk,clerk,%1$s,Staff,clerk@example.com,0123456789,true
+                2,Guest,guest,%1$s,Volunteer,guest@example.com,0123456789,true
+                """.formatted(hash));
+        write("ppe.txt", """
+                Item Code,Item Name,Quantity (Boxes),Supplier Code,isActive
+                HC,Head Cover,100,SP1,true
+                GL,Gloves,100,SP2,true
+                """);
+        write("hospital.txt", """
+                Hospital Code,Hospital Name,Items Recieved (Total Boxes),isActive
+                HP1,Hospital A,0,true
+                """);
+        write("supplier.txt", """
+                Supplier Code,Supplier Name,Item Code,Quantity,isActive
+                SP1,Supplier 1,HC,100,true
+                SP2,Supplier 2,GL,100,true
+                """);
+        write("transactions.txt", "TransactionID,Item Code,Code,Details,Quantity,Date-Time\n");
+
+        server = new InventoryApiServer(DatabaseContext.get(), 0);
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentDistributesNeverOversell() throws Exception {
+        assertEquals(200, get("/api/stock?item=HC", "clerk").statusCode()); // <- Warm up: one bcrypt check
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        HttpResponse<String> response = post("/api/distribute?hospital=HP1&item=HC&quantity=1");
+                        switch (response.statusCode()) {
+                            case 200 -> accepted.incrementAndGet();
+                            case 409 -> rejected.incrementAndGet();
+                            default -> fail(response.statusCode() + " " + response.body());
+                        }
+                        assertEquals(200, get("/api/stock?item=GL", "clerk").statusCode());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        assertEquals(100, accepted.get());
+        assertEquals(CLIENTS * REQUESTS_PER_CLIENT - 100, rejected.get());
+        assertTrue(get("/api/stock?item=HC", "clerk").body().contains("\"quantity\":0"));
+        String log = get("/api/transactions?from=" + LocalDate.now() + "&limit=1000", "clerk").body();
+        assertEquals(100, Pattern.compile("\"item\":\"HC\"").matcher(log).results().count());
+    }
+
+    @Test
+    void negativeLimitIsABadRequest() throws Exception {
+        HttpResponse<String> response = get("/api/transactions?from=" + LocalDate.now() + "&limit=-1", "clerk");
+        assertEquals(400, response.statusCode(), response.body());
+        assertEquals(200, get("/api/transactions?from=" + LocalDate.now() + "&limit=0", "clerk").statusCode());
+    }
+
+    @Test
+    void quantitiesThatOverflowTogetherAreABadRequest() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/receive?supplier=SP2"))
+                .header("Authorization", basic("clerk", PASSWORD))
+                .POST(HttpRequest.BodyPublishers.ofString("GL," + Integer.MAX_VALUE + "\nGL,1\n")).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode(), response.body());
+        assertTrue(response.body().contains("Quantity too large: GL"), response.body());
+    }
+
+    @Test
+    void otherUserTypesAreForbidden() throws Exception {
+        assertEquals(403, get("/api/transactions?from=" + LocalDate.now(), "guest").statusCode());
+        assertEquals(403, get("/api/stock", "guest").statusCode());
+    }
+
+    @Test
+    void wrongPasswordIsUnauthorized() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/stock"))
+                .header("Authorization", basic("clerk", "wrong")).GET().build();
+        assertEquals(401, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private static HttpResponse<String> get(String path, String username) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path))
+                .header("Authorization", basic(username, PASSWORD)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path))
+                .header("Authorization", basic("clerk", PASSWORD)).POST(HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(String file, String content) throws IOException {
+        Files.writeString(TestData.DIRECTORY.toPath().resolve(file), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import com.projectinventorymanagement.utils.WriteBehindFlusher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.projectinventorymanagement.database.TestTable.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs with -Dinventory.fxWatchdog=true (see the surefire configuration), so
+ * every table file read or write on the JavaFX thread throws. The calls the
+ * GUI makes on that thread must hand their I/O to BackgroundIO; the blocking
+ * calls must trip the watchdog.
+ */
+class FxThreadWatchdogTest {
+    private static final String FX_THREAD_NAME = "JavaFX Application Thread"; // <- What BackgroundIO.onFxThread() checks
+
+    @BeforeEach
+    void writeTable() throws IOException {
+        assertTrue(Boolean.getBoolean("inventory.fxWatchdog"), "surefire should enable the watchdog");
+        TestData.reset();
+        TestTable table = new TestTable("watched");
+        table.replaceAll(Map.of(0, row("Code", "Name"), 1, row("HC", "Head Cover"), 2, row("MS", "Mask")));
+        table.flush(true);
+    }
+
+    @Test
+    void asyncCallsDoTheirIoOffTheFxThread() throws Exception {
+        TestTable table = onFxThread(() -> DatabaseBase.open(() -> new TestTable("watched"))).get(10, TimeUnit.SECONDS);
+        List<CompletableFuture<Void>> futures = onFxThread(() -> List.of(
+                table.loadDataAsync(),
+                table.reloadTailAsync(),
+                table.prepareSearchAsync(),
+                table.saveDataAsync()));
+        for (CompletableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS); // <- Would fail with the watchdog's IllegalStateException
+        }
+    }
+
+    @Test
+    void editsOnTheFxThreadAreFlushedInTheBackground() throws Exception {
+        TestTable table = new TestTable("watched");
+        WriteBehindFlusher.Durability previous = WriteBehindFlusher.getDurability();
+        WriteBehindFlusher.setDurability(WriteBehindFlusher.Durability.SYNC_PER_OP); // <- Flushes on every change
+        try {
+            onFxThread(() -> {
+                table.addEntry(3, row("GL", "Gloves"));
+                return null;
+            });
+            table.whenWritten().get(10, TimeUnit.SECONDS);
+        } finally {
+            WriteBehindFlusher.setDurability(previous);
+        }
+        assertEquals(row("GL", "Gloves"), new TestTable("watched").getEntry(3));
+    }
+
+    @Test
+    void searchOnTheFxThreadScansUntilTheIndexIsBuilt() throws Exception {
+        TestTable table = new TestTable("watched");
+        BitSet matches = onFxThread(() -> table.search("as"));
+        assertEquals(BitSet.valueOf(new long[] {0b100}), matches);
+        table.prepareSearchAsync().get(10, TimeUnit.SECONDS);
+        assertEquals(matches, onFxThread(() -> table.search("as")));
+    }
+
+    @Test
+    void blockingCallsTripTheWatchdog() {
+        TestTable table = new TestTable("watched");
+        assertWatchdogTrips(() -> new TestTable("watched"));
+        assertWatchdogTrips(() -> {
+            table.loadData();
+            return null;
+        });
+        assertWatchdogTrips(() -> {
+            table.flush(true);
+            return null;
+        });
+        assertWatchdogTrips(() -> {
+            table.reloadTail();
+            return null;
+        });
+    }
+
+    private static void assertWatchdogTrips(Supplier<?> call) {
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> onFxThread(call));
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        assertTrue(thrown.getCause().getMessage().startsWith("File I/O on the JavaFX application thread"),
+                thrown.getCause().getMessage());
+    }
+
+    // Runs the call on a thread named like the JavaFX application thread
+    private static <T> T onFxThread(Supplier<T> call) throws Exception {
+        FutureTask<T> task = new FutureTask<>(call::get);
+        new Thread(task, FX_THREAD_NAME).start();
+        return task.get(10, TimeUnit.SECONDS);
+    }
+}
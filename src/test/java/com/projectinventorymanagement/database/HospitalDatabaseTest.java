@@ -0,0 +1,109 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * New hospitals go after the last row, and deleted rows leave the file at the
+ * next checkpoint. Old per-item columns move to the distribution table.
+ */
+class HospitalDatabaseTest {
+    private static final File FILE = new File(TestData.DIRECTORY, "hospital.txt");
+
+    @BeforeEach
+    void writeHospitals() throws IOException {
+        TestData.reset();
+        Files.writeString(FILE.toPath(), """
+                Hospital Code,Hospital Name,Items Recieved (Total Boxes),isActive
+                HP1,Hospital A,0,true
+                HP2,Hospital B,0,true
+                HP3,Hospital C,0,false
+                """, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void addAfterADeleteKeepsTheLastRow() {
+        HospitalDatabase hospitals = new HospitalDatabase();
+        hospitals.deleteEntry(1); // <- size() is now the index of HP3
+        hospitals.addHospital("HP4", "Hospital D", true);
+
+        assertNotNull(hospitals.findHospitalByCode("HP3"));
+        assertNotNull(hospitals.findHospitalByCode("HP4"));
+        assertNull(hospitals.findHospitalByCode("HP1"));
+    }
+
+    @Test
+    void deleteIsCheckpointedAtTheNextFlush() throws IOException {
+        HospitalDatabase hospitals = new HospitalDatabase();
+        hospitals.flush(true); // <- Whatever opening the table scheduled
+        hospitals.deleteEntry(2);
+        hospitals.flush(true);
+
+        assertEquals(List.of(
+                "Hospital Code,Hospital Name,Items Recieved (Total Boxes),isActive",
+                "HP1,Hospital A,0,true",
+                "HP3,Hospital C,0,false"), Files.readAllLines(FILE.toPath(), StandardCharsets.UTF_8));
+        assertEquals(0, new File(TestData.DIRECTORY, "hospital.log").length());
+    }
+
+    @Test
+    void oldItemColumnsMoveToTheDistributionTable() throws IOException {
+        Files.writeString(FILE.toPath(), """
+                Hospital Code,Hospital Name,Items Recieved (Total Boxes),HC,FS,isActive
+                HP1,Hospital A,12,2,10,true
+                HP2,Hospital B,0,lots,0,true
+                """, StandardCharsets.UTF_8);
+        HospitalDatabase hospitals = new HospitalDatabase();
+
+        assertEquals(Map.of("HC", 2L, "FS", 10L), hospitals.getReceivedItems("HP1"));
+        assertEquals(Map.of(), hospitals.getReceivedItems("HP2")); // <- The non-numeric cell counts as 0
+        assertEquals(List.of("HP2", "Hospital B", "0", "true"), hospitals.findHospitalByCode("HP2"));
+    }
+
+    @Test
+    void shortOldFormatRowsArePadded() throws IOException {
+        Files.writeString(FILE.toPath(), """
+                Hospital Code,Hospital Name,Items Recieved (Total Boxes),HC,FS,isActive
+                HP1,Hospital A,12,2,10,false
+                HP2,Hospital B,3
+                HP3,Hospital C,4,4,,
+                """, StandardCharsets.UTF_8);
+        HospitalDatabase hospitals = new HospitalDatabase();
+
+        assertEquals(List.of("HP1", "Hospital A", "12", "false"), hospitals.findHospitalByCode("HP1"));
+        assertEquals(List.of("HP2", "Hospital B", "3", "true"), hospitals.findHospitalByCode("HP2"));
+        assertEquals(List.of("HP3", "Hospital C", "4", "true"), hospitals.findHospitalByCode("HP3"));
+        assertEquals(Map.of("HC", 4L), hospitals.getReceivedItems("HP3"));
+    }
+
+    @Test
+    void concurrentDistributionsAddUpPerCell() throws Exception {
+        DistributionDatabase distribution = new HospitalDatabase().getDistribution();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    distribution.addBoxes("HP1", Map.of("HC", 1, "GL", 2));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+
+        assertEquals(800, distribution.getBoxes("HP1", "HC"));
+        assertEquals(1600, distribution.getBoxes("HP1", "GL"));
+        assertEquals(3, distribution.getEntries().size()); // <- Header and one row per cell, never created twice
+    }
+}
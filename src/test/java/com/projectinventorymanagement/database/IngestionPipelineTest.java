@@ -0,0 +1,162 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The pipeline imports and rejects the same lines as the serial importer,
+ * also when an item's receipts and distributions interleave across chunks and
+ * partitions and its stock keeps running out, and a failing stage ends the
+ * run with the error instead of leaving it waiting.
+ */
+class IngestionPipelineTest {
+    private static final Map<String, Integer> OPENING_STOCK = Map.of("HC", 20, "FS", 5, "MS", 0, "GL", 20);
+    private static final List<String> ITEMS = List.of("HC", "FS", "MS", "GL");
+
+    private TransactionImporter importer;
+    private ItemDatabase items;
+
+    @BeforeEach
+    void writeTables() throws IOException {
+        TestData.reset();
+        write("ppe.txt", """
+                Item Code,Item Name,Quantity (Boxes),Supplier Code,isActive
+                HC,Head Cover,20,SP1,true
+                FS,Face Shield,5,SP1,true
+                MS,Mask,0,SP2,true
+                GL,Gloves,20,SP2,true
+                """);
+        write("hospital.txt", """
+                Hospital Code,Hospital Name,Items Recieved (Total Boxes),isActive
+                HP1,Hospital A,0,true
+                HP2,Hospital B,0,true
+                """);
+        write("supplier.txt", """
+                Supplier Code,Supplier Name,Item Code,Quantity,isActive
+                SP1,Supplier 1,HC,100,true
+                SP1,Supplier 1,FS,100,true
+                SP2,Supplier 2,MS,100,true
+                SP2,Supplier 2,GL,100,true
+                """);
+        write("transactions.txt", "TransactionID,Item Code,Code,Details,Quantity,Date-Time\n");
+        items = new ItemDatabase();
+        importer = new TransactionImporter(new TransactionDatabase(), items, new HospitalDatabase(),
+                new SupplierDatabase(), 100);
+    }
+
+    @Test
+    void importsAndRejectsTheSameLinesAsTheSerialImporter() throws IOException {
+        String manifest = manifest(3000);
+        Map<Long, String> serialRejections = new TreeMap<>();
+        TransactionImporter.Report serial = importer.importFrom(new StringReader(manifest),
+                rejection -> serialRejections.put(rejection.lineNumber(), rejection.reason()));
+        Map<String, Integer> serialStock = stock();
+
+        OPENING_STOCK.forEach((code, quantity) -> // <- Back to the start; only the stock decides rejections
+                assertTrue(items.updateItemQuantity(code, quantity - items.getItemQuantity(code))));
+        Map<Long, String> pipelineRejections = new TreeMap<>();
+        IngestionPipeline.Report pipelined = new IngestionPipeline(importer, 4, 3, 4) // <- Small queues: back pressure
+                .importFrom(new StringReader(manifest),
+                        rejection -> pipelineRejections.put(rejection.lineNumber(), rejection.reason()));
+
+        assertTrue(serialRejections.values().stream().anyMatch(reason -> reason.startsWith("Insufficient stock")));
+        assertEquals(serialRejections, pipelineRejections);
+        assertEquals(serialStock, stock());
+        assertEquals(serial.lines(), pipelined.totals().lines());
+        assertEquals(serial.imported(), pipelined.totals().imported());
+        assertEquals(serial.rejected(), pipelined.totals().rejected());
+    }
+
+    @Test
+    void aFailingStageEndsTheRunWithItsError() {
+        String manifest = manifest(3000);
+        IngestionPipeline pipeline = new IngestionPipeline(importer, 4, 3, 2);
+
+        // Validate fails: the rejection consumer throws on the first invalid line
+        IllegalStateException rejected = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(
+                IllegalStateException.class, () -> pipeline.importFrom(new StringReader(manifest), rejection -> {
+                    throw new IllegalStateException("rejects file is gone");
+                })));
+        assertEquals("rejects file is gone", rejected.getMessage());
+
+        // Decode fails: the input breaks after a few chunks
+        IOException broken = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(
+                IOException.class, () -> pipeline.importFrom(new FailingReader(manifest, 5000), _ -> {
+                })));
+        assertEquals("disk read error", broken.getMessage());
+    }
+
+    // Receipts and distributions of every item in random order, so stock runs out and comes back;
+    // every 97th line is invalid
+    private static String manifest(int lines) {
+        Random random = new Random(7);
+        StringBuilder manifest = new StringBuilder("TransactionID,Item Code,Code,Details,Quantity,Date-Time\n");
+        for (int line = 2; line <= lines; line++) {
+            String item = ITEMS.get(random.nextInt(ITEMS.size()));
+            int quantity = 1 + random.nextInt(6);
+            if (line % 97 == 0) {
+                manifest.append(",").append(item).append(",HP1,Distribute,").append(-quantity).append(",\n");
+            } else if (random.nextInt(100) < 45) {
+                String supplier = item.equals("HC") || item.equals("FS") ? "SP1" : "SP2";
+                manifest.append(",").append(item).append(',').append(supplier).append(",Receive,").append(quantity)
+                        .append(",\n");
+            } else {
+                manifest.append(",").append(item).append(random.nextBoolean() ? ",HP1" : ",HP2").append(",Distribute,")
+                        .append(quantity).append(",\n");
+            }
+        }
+        return manifest.toString();
+    }
+
+    private Map<String, Integer> stock() {
+        Map<String, Integer> stock = new TreeMap<>();
+        for (String code : ITEMS) {
+            stock.put(code, items.getItemQuantity(code));
+        }
+        return stock;
+    }
+
+    private static void write(String file, String content) throws IOException {
+        Files.writeString(TestData.DIRECTORY.toPath().resolve(file), content, StandardCharsets.UTF_8);
+    }
+
+    // Reads the text, then fails
+    private static final class FailingReader extends Reader {
+        private final StringReader text;
+        private int left;
+
+        FailingReader(String text, int failAfter) {
+            this.text = new StringReader(text);
+            this.left = failAfter;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (left <= 0) {
+                throw new IOException("disk read error");
+            }
+            int read = text.read(buffer, offset, Math.min(length, left));
+            left -= Math.max(read, 0);
+            return read;
+        }
+
+        @Override
+        public void close() {
+            text.close();
+        }
+    }
+}
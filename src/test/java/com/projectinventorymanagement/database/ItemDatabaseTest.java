@@ -0,0 +1,143 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test of the striped item locks: concurrent movements never oversell,
+ * never lose an increment, and a check made under an item's lock still holds
+ * when the movement that depends on it runs.
+ */
+class ItemDatabaseTest {
+    private static final int THREADS = 16;
+
+    @BeforeEach
+    void writeItems() throws IOException {
+        TestData.reset();
+        Files.writeString(TestData.DIRECTORY.toPath().resolve("ppe.txt"), """
+                Item Code,Item Name,Quantity (Boxes),Supplier Code,isActive
+                HC,Head Cover,100,SP1,true
+                FS,Face Shield,90,SP1,true
+                MS,Mask,100,SP2,true
+                GL,Gloves,100,SP2,true
+                """, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void concurrentWithdrawalsNeverOversell() throws Exception {
+        ItemDatabase items = new ItemDatabase();
+        AtomicInteger sold = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < 50; i++) {
+                if (items.updateItemQuantity("HC", -1)) {
+                    sold.incrementAndGet();
+                }
+                assertTrue(items.updateItemQuantity("FS", 1));
+            }
+        });
+
+        assertEquals(100, sold.get());
+        assertEquals(0, items.getItemQuantity("HC"));
+        assertEquals(90 + THREADS * 50, items.getItemQuantity("FS"));
+    }
+
+    @Test
+    void checkAndMoveUnderTheItemLockStayAtomic() throws Exception {
+        ItemDatabase items = new ItemDatabase();
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger distributed = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < 20; i++) {
+                items.withItemLock("MS", () -> {
+                    assertEquals(1, inside.incrementAndGet(), "two movements of MS at once");
+                    try {
+                        if (items.getItemQuantity("MS") < 3) {
+                            return false;
+                        }
+                        Thread.yield(); // <- Invite another thread into the gap between check and move
+                        assertTrue(items.updateItemQuantity("MS", -3), "the checked stock was gone");
+                        distributed.addAndGet(3);
+                        return true;
+                    } finally {
+                        inside.decrementAndGet();
+                    }
+                });
+            }
+        });
+
+        assertEquals(99, distributed.get());
+        assertEquals(1, items.getItemQuantity("MS"));
+    }
+
+    @Test
+    void basketsSharingItemsDoNotDeadlock() throws Exception {
+        ItemDatabase items = new ItemDatabase();
+        AtomicInteger index = new AtomicInteger();
+        runConcurrently(() -> {
+            // Half the threads name the items in the opposite order
+            List<String> basket = index.getAndIncrement() % 2 == 0 ? List.of("GL", "HC") : List.of("HC", "GL");
+            for (int i = 0; i < 200; i++) {
+                items.withItemLocks(basket, () -> items.updateItemQuantity("GL", 1)
+                        && items.updateItemQuantity("HC", 1));
+            }
+        });
+
+        assertEquals(100 + THREADS * 200, items.getItemQuantity("GL"));
+        assertEquals(100 + THREADS * 200, items.getItemQuantity("HC"));
+    }
+
+    @Test
+    void movedStockIsWrittenIntoTheRows() {
+        ItemDatabase items = new ItemDatabase();
+        assertTrue(items.updateItemQuantity("GL", -40));
+        assertFalse(items.updateItemQuantity("GL", -61));
+        items.saveData();
+        items.flush(true);
+
+        assertEquals(List.of("GL", "Gloves", "60", "SP2", "true"), items.getEntry(4));
+        ItemDatabase reopened = new ItemDatabase();
+        assertEquals(60, reopened.getItemQuantity("GL"));
+    }
+
+    @Test
+    void itemsAfterADeleteSkipTheHole() {
+        ItemDatabase items = new ItemDatabase();
+        items.deleteEntry(2); // <- A hole until the next checkpoint
+
+        assertEquals(List.of("HC", "MS", "GL"), items.getItems().stream().map(row -> row.get(0)).toList());
+    }
+
+    // Starts every thread at once and fails on the first assertion any of them failed
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS); // <- A deadlock fails here instead of hanging the build
+        }
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,98 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Merge-on-write keeps (Supplier Code, Item Code) unique, also with holes left
+ * by deletes and with concurrent deliveries.
+ */
+class SupplierDatabaseTest {
+
+    @BeforeEach
+    void writeSuppliers() throws IOException {
+        TestData.reset();
+        Files.writeString(TestData.DIRECTORY.toPath().resolve("supplier.txt"), """
+                Supplier Code,Supplier Name,Item Code,Quantity,isActive
+                SP1,Alpha,HC,10,true
+                SP1,Alpha,FS,20,true
+                SP2,Beta,MS,30,true
+                """, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void newRowAfterADeleteKeepsTheOtherRows() {
+        SupplierDatabase suppliers = new SupplierDatabase();
+        suppliers.deleteEntry(1); // <- Leaves a hole, so size() is now the index of the last row
+        suppliers.updateSupplierReceivedItems("SP3", "GG", 5);
+
+        List<String> rows = rows(suppliers);
+        assertTrue(rows.contains("SP1,Alpha,FS,20,true"), rows.toString());
+        assertTrue(rows.contains("SP2,Beta,MS,30,true"), rows.toString());
+        assertTrue(rows.contains("SP3,SP3,GG,5,true"), rows.toString());
+        assertEquals(3, rows.size());
+    }
+
+    @Test
+    void deliveryMergesIntoTheExistingRow() {
+        SupplierDatabase suppliers = new SupplierDatabase();
+        suppliers.updateSupplierReceivedItems("SP1", "FS", 5);
+        assertTrue(rows(suppliers).contains("SP1,Alpha,FS,25,true"));
+        assertEquals(3, rows(suppliers).size());
+    }
+
+    @Test
+    void concurrentDeliveriesOfANewItemMakeOneRow() throws Exception {
+        SupplierDatabase suppliers = new SupplierDatabase();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> done = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            done.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    suppliers.updateSupplierReceivedItems("SP2", "GW", 1);
+                }
+            }));
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+        pool.shutdown();
+
+        List<String> gowns = rows(suppliers).stream().filter(row -> row.startsWith("SP2,Beta,GW,")).toList();
+        assertEquals(List.of("SP2,Beta,GW,4000,true"), gowns);
+    }
+
+    @Test
+    void addSupplierWritesOneRowPerItemAndMergesRepeats() {
+        SupplierDatabase suppliers = new SupplierDatabase();
+        suppliers.addSupplier(new SupplierDatabase.SupplierEntry("SP3", "Gamma",
+                List.of(new SupplierDatabase.ItemData("HC", 7), new SupplierDatabase.ItemData("GL", 3)), true));
+        suppliers.addSupplier(new SupplierDatabase.SupplierEntry("SP3", "Gamma",
+                List.of(new SupplierDatabase.ItemData("HC", 2)), true));
+
+        List<String> gamma = rows(suppliers).stream().filter(row -> row.startsWith("SP3,")).sorted().toList();
+        assertEquals(List.of("SP3,Gamma,GL,3,true", "SP3,Gamma,HC,9,true"), gamma);
+    }
+
+    private static List<String> rows(SupplierDatabase suppliers) {
+        List<String> rows = new ArrayList<>();
+        suppliers.getEntries().forEach((index, row) -> {
+            if (index != 0) {
+                rows.add(String.join(",", row));
+            }
+        });
+        return rows;
+    }
+}
@@ -0,0 +1,34 @@
+package com.projectinventorymanagement.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal comma separated table for tests of DatabaseBase itself.
+ */
+class TestTable extends DatabaseBase {
+
+    TestTable(String name) {
+        super(name);
+    }
+
+    static ArrayList<String> row(String... fields) {
+        return new ArrayList<>(Arrays.asList(fields));
+    }
+
+    // The rows in index order, header first
+    List<ArrayList<String>> rows() {
+        return new ArrayList<>(new java.util.TreeMap<>(getEntries()).values());
+    }
+
+    @Override
+    protected String toStringFormat(ArrayList<String> entry) {
+        return String.join(",", entry);
+    }
+
+    @Override
+    protected ArrayList<String> fromStringFormat(String line) {
+        return new ArrayList<>(Arrays.asList(line.split(",")));
+    }
+}
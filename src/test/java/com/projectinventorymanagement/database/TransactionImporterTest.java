@@ -0,0 +1,105 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A manifest with a header, one line for every reason a line is rejected, and
+ * a distribution that exceeds the stock in the middle of a batch: that line is
+ * rejected on its own while the rest of its batch is imported.
+ */
+class TransactionImporterTest {
+    private ItemDatabase items;
+    private HospitalDatabase hospitals;
+    private TransactionDatabase transactions;
+    private TransactionImporter importer;
+
+    @BeforeEach
+    void writeTables() throws IOException {
+        TestData.reset();
+        write("ppe.txt", """
+                Item Code,Item Name,Quantity (Boxes),Supplier Code,isActive
+                HC,Head Cover,10,SP1,true
+                GL,Gloves,5,SP2,true
+                """);
+        write("hospital.txt", """
+                Hospital Code,Hospital Name,Items Recieved (Total Boxes),isActive
+                HP1,Hospital A,0,true
+                """);
+        write("supplier.txt", """
+                Supplier Code,Supplier Name,Item Code,Quantity,isActive
+                SP1,Supplier 1,HC,100,true
+                SP2,Supplier 2,GL,100,true
+                """);
+        write("transactions.txt", "TransactionID,Item Code,Code,Details,Quantity,Date-Time\n");
+        items = new ItemDatabase();
+        hospitals = new HospitalDatabase();
+        transactions = new TransactionDatabase();
+        importer = new TransactionImporter(transactions, items, hospitals, new SupplierDatabase(), 3);
+    }
+
+    @Test
+    void rejectsEachInvalidLineAndOnlyTheShortageOfABatch() throws IOException {
+        String manifest = """
+                TransactionID,Item Code,Code,Details,Quantity,Date-Time
+                ,HC,HP1,Distribute,4,
+                x,HC,HP1
+                ,HC,HP1,Borrow,1,
+                ,HC,HP1,Distribute,many,
+                ,HC,HP1,Distribute,0,
+                ,XX,HP1,Distribute,1,
+                ,HC,HP9,Distribute,1,
+                ,HC,SP9,Receive,1,
+                ,HC,HP1,Distribute,1,yesterday
+                ,GL,HP1,Distribute,9,
+                ,HC,SP1,Receive,3,2025-03-20 01:55:02
+
+                ,GL,HP1,Distribute,5,
+                """;
+        Map<Long, String> rejected = new TreeMap<>();
+        TransactionImporter.Report report = importer.importFrom(new StringReader(manifest),
+                rejection -> rejected.put(rejection.lineNumber(), rejection.reason()));
+
+        Map<Long, String> expected = new TreeMap<>(Map.of(
+                3L, "Expected at least 5 columns",
+                4L, "Unknown type: Borrow",
+                5L, "Invalid quantity: many",
+                6L, "Quantity must be greater than zero",
+                7L, "Unknown item: XX",
+                8L, "Unknown hospital: HP9",
+                9L, "Unknown supplier: SP9",
+                10L, "Invalid Date-Time: yesterday",
+                11L, "Insufficient stock: 5 boxes available")); // <- Lines 2, 11 and 12 are one batch
+        assertEquals(expected, rejected);
+
+        assertEquals(14, report.lines());
+        assertEquals(3, report.imported());
+        assertEquals(9, report.rejected());
+        assertEquals(2, report.batches());
+
+        assertEquals(9, items.getItemQuantity("HC"));
+        assertEquals(0, items.getItemQuantity("GL"));
+        assertEquals(Map.of("HC", 4L, "GL", 5L), hospitals.getReceivedItems("HP1"));
+        List<String> imported = new ArrayList<>();
+        for (ArrayList<String> row : new TreeMap<>(transactions.getEntries()).tailMap(1).values()) {
+            imported.add(String.join(",", row.subList(1, 5)));
+        }
+        assertEquals(List.of("HC,HP1,Distribute,4", "HC,SP1,Receive,3", "GL,HP1,Distribute,5"), imported);
+    }
+
+    private static void write(String file, String content) throws IOException {
+        Files.writeString(TestData.DIRECTORY.toPath().resolve(file), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,142 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.projectinventorymanagement.database.TestTable.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The trigram search over the word index answers exactly what a scan of every
+ * cell does, also after edits and after loading the saved index.
+ */
+class TrigramIndexTest {
+    private static final String[] QUERIES = {"p1", "ask", "face sh", "P1-0", "2025-03", "-", "1", "ld", "z", "mask,", "s m"};
+
+    private Map<Integer, ArrayList<String>> data;
+
+    @BeforeEach
+    void fillRows() throws IOException {
+        TestData.reset();
+        data = new HashMap<>();
+        data.put(0, row("Item Code", "Item Name", "Date"));
+        data.put(1, row("P1-001", "Face Shield", "2025-03-20"));
+        data.put(2, row("P1-002", "Surgical Mask", "2025-04-01"));
+        data.put(3, row("GL-7", "Gloves", "2024-12-31"));
+        data.put(5, row("MS", "Mask, N95", "2025-03-02"));
+    }
+
+    @Test
+    void answersLikeAScan() {
+        TrigramIndex index = new TrigramIndex("items");
+        index.rebuild(data);
+        assertSearchesMatchScan(index);
+        assertEquals(bits(1, 2), index.search("P1"));
+        assertEquals(bits(2, 5), index.search("ask"));
+    }
+
+    @Test
+    void followsEdits() {
+        TrigramIndex index = new TrigramIndex("items");
+        index.rebuild(data);
+        data.put(2, row("P1-002", "Gown", "2025-05-05"));
+        index.put(2, data.get(2));
+        data.remove(3);
+        index.remove(3);
+        assertSearchesMatchScan(index);
+        assertEquals(bits(5), index.search("ask"));
+        assertEquals(bits(), index.search("glove"));
+    }
+
+    @Test
+    void loadsTheSavedIndexForTheSameRows() {
+        TrigramIndex built = new TrigramIndex("items");
+        built.rebuild(data);
+        built.write(built.encode(data));
+        assertTrue(TestData.DIRECTORY.toPath().resolve("items.tri").toFile().exists());
+        TrigramIndex loaded = new TrigramIndex("items");
+        loaded.rebuild(data);
+        assertSearchesMatchScan(loaded);
+        loaded.remove(1); // <- Removing needs the row text restored next to the loaded words
+        data.remove(1);
+        assertSearchesMatchScan(loaded);
+    }
+
+    @Test
+    void randomRowsAndQueries() {
+        Random random = new Random(7);
+        String alphabet = "ab1- ,";
+        for (int i = 1; i < 300; i++) {
+            data.put(i, row(text(random, alphabet), text(random, alphabet)));
+        }
+        TrigramIndex index = new TrigramIndex("random");
+        index.rebuild(data);
+        for (int i = 0; i < 500; i++) {
+            String query = text(random, alphabet);
+            assertEquals(TrigramIndex.scan(data, query), index.search(query), "query '" + query + "'");
+        }
+    }
+
+    @Test
+    void tableDropsTheIndexWhenAllRowsChange() {
+        TestTable table = new TestTable("search");
+        table.replaceAll(data);
+        assertEquals(bits(2, 5), table.search("ask"));
+
+        data.put(2, row("P1-002", "Gown", "2025-05-05"));
+        table.replaceAll(data);
+        assertEquals(bits(5), table.search("ask"));
+        table.addEntry(6, row("FM", "Face Mask", "2025-06-01"));
+        assertEquals(bits(5, 6), table.search("ask"));
+    }
+
+    @Test
+    void checkpointWritesTheIndexForTheNextStart() {
+        data.put(4, data.remove(5)); // <- Dense, so the checkpoint keeps the row indexes
+        TestTable table = new TestTable("search");
+        table.replaceAll(data);
+        table.search("ask");
+        File index = TestData.DIRECTORY.toPath().resolve("search.tri").toFile();
+        assertTrue(index.delete(), "the index should be written once it is built");
+        table.addEntry(5, row("FM", "Face Mask", "2025-06-01"));
+        table.saveData();
+        table.flush(true);
+        assertTrue(index.exists());
+
+        TestTable restarted = new TestTable("search");
+        assertEquals(bits(2, 4, 5), restarted.search("ask"));
+        assertEquals(bits(1), restarted.search("face sh"));
+    }
+
+    private void assertSearchesMatchScan(TrigramIndex index) {
+        for (String query : QUERIES) {
+            assertEquals(TrigramIndex.scan(data, query), index.search(query), "query '" + query + "'");
+        }
+    }
+
+    private static String text(Random random, String alphabet) {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    private static BitSet bits(int... rows) {
+        BitSet result = new BitSet();
+        for (int row : rows) {
+            result.set(row);
+        }
+        return result;
+    }
+}
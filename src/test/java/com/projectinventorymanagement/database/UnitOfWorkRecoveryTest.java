@@ -0,0 +1,68 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import com.projectinventorymanagement.utils.UnitOfWorkJournal;
+import com.projectinventorymanagement.utils.WriteBehindFlusher;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.projectinventorymanagement.database.TestTable.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restart after a crash that left data/journal.log with a committed unit no
+ * table log has, an uncommitted unit and a torn last line. The journal is
+ * loaded once per JVM, so this is a single scenario.
+ */
+class UnitOfWorkRecoveryTest {
+    private static final File JOURNAL = new File(TestData.DIRECTORY, "journal.log");
+
+    @Test
+    void recoversCommittedUnitsAndAppendsAfterTheLastIntactLine() throws IOException {
+        TestData.reset();
+        Files.writeString(new File(TestData.DIRECTORY, "wal.txt").toPath(), "Code,Name\n", StandardCharsets.UTF_8);
+        String intact = line("R,1,other,P,1,Z,elsewhere") // <- For a table that is never opened, keeps the journal
+                + line("C,1")
+                + line("R,2,wal,P,1,A,first")
+                + line("R,2,wal,P,2,B,second")
+                + line("C,2")
+                + line("R,3,wal,P,3,X,never committed");
+        Files.writeString(JOURNAL.toPath(), intact + "1a2b3c,R,4,wal,P,4,to", StandardCharsets.UTF_8);
+
+        TestTable table = new TestTable("wal");
+        assertEquals(List.of(row("Code", "Name"), row("A", "first"), row("B", "second")), table.rows());
+        assertEquals(intact, Files.readString(JOURNAL.toPath(), StandardCharsets.UTF_8), "torn tail cut off");
+
+        UnitOfWorkJournal.run(() -> {
+            table.addEntry(3, row("C", "third"));
+            return null;
+        });
+        WriteBehindFlusher.flushAll();
+
+        // What the next start would read: every line intact, the new unit committed
+        List<String> lines = Files.readAllLines(JOURNAL.toPath(), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            int comma = line.indexOf(',');
+            assertEquals(Long.toHexString(checksum(line.substring(comma + 1))), line.substring(0, comma), line);
+        }
+        assertTrue(lines.stream().anyMatch(line -> line.matches("[0-9a-f]+,R,\\d+,wal,P,3,C,third")), lines.toString());
+        assertEquals(List.of(row("Code", "Name"), row("A", "first"), row("B", "second"), row("C", "third")),
+                new TestTable("wal").rows());
+    }
+
+    private static String line(String body) {
+        return Long.toHexString(checksum(body)) + "," + body + "\n";
+    }
+
+    private static long checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,44 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import com.projectinventorymanagement.models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * New users go after the last row, so an add while a delete still leaves a
+ * hole never overwrites another account.
+ */
+class UserDatabaseTest {
+
+    @BeforeEach
+    void writeUsers() throws IOException {
+        TestData.reset();
+        Files.writeString(TestData.DIRECTORY.toPath().resolve("user.txt"), """
+                UserID,Name,Username,Password,UserType,Email,Phone,isActive
+                1,Ann,ann,x,Admin,ann@example.com,1,true
+                2,Ben,ben,x,Staff,ben@example.com,2,true
+                3,Cat,cat,x,Staff,cat@example.com,3,true
+                """, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void addAfterADeleteKeepsTheLastRow() {
+        UserDatabase users = new UserDatabase();
+        assertTrue(users.deleteUser("ann")); // <- size() is now the index of cat
+        assertTrue(users.addUser(new User(4, "Dan", "dan", "x", "Staff", "dan@example.com", "4", true)));
+        users.flush(true);
+
+        UserDatabase reopened = new UserDatabase();
+        assertNull(reopened.getUserByUsername("ann"));
+        assertNotNull(reopened.getUserByUsername("ben"));
+        assertNotNull(reopened.getUserByUsername("cat"));
+        assertNotNull(reopened.getUserByUsername("dan"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.projectinventorymanagement.database;
+
+import com.projectinventorymanagement.TestData;
+import com.projectinventorymanagement.utils.WriteBehindFlusher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.projectinventorymanagement.database.TestTable.row;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A crash can leave the last log record half written. Records appended after
+ * the restart must survive the next restart.
+ */
+class WriteAheadLogRecoveryTest {
+    private static final String TABLE = "wal";
+    private static final File LOG = new File(TestData.DIRECTORY, TABLE + ".log");
+
+    @BeforeEach
+    void clearData() throws IOException {
+        TestData.reset();
+    }
+
+    @Test
+    void appendAfterPartialLastLineSurvivesRestart() throws IOException {
+        writeTwoRows();
+        crashWith("1f2e3d,P,3,torn"); // <- No newline: the write stopped mid-record
+
+        appendAfterRestart();
+    }
+
+    @Test
+    void appendAfterCorruptLastLineSurvivesRestart() throws IOException {
+        writeTwoRows();
+        crashWith("0,P,3,garbage\n"); // <- Complete line, wrong checksum
+
+        appendAfterRestart();
+    }
+
+    private static void writeTwoRows() {
+        TestTable table = new TestTable(TABLE);
+        table.addEntry(0, row("Code", "Name"));
+        table.addEntry(1, row("A", "first"));
+        table.addEntry(2, row("B", "second"));
+        WriteBehindFlusher.flushAll();
+        assertTrue(LOG.length() > 0, "the rows should be in the log, not a checkpoint");
+    }
+
+    private static void crashWith(String tail) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(LOG, true)) {
+            output.write(tail.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void appendAfterRestart() {
+        TestTable restarted = new TestTable(TABLE);
+        assertEquals(List.of(row("Code", "Name"), row("A", "first"), row("B", "second")), restarted.rows());
+        restarted.addEntry(3, row("C", "after the crash"));
+        WriteBehindFlusher.flushAll();
+
+        TestTable again = new TestTable(TABLE);
+        assertEquals(List.of(row("Code", "Name"), row("A", "first"), row("B", "second"),
+                row("C", "after the crash")), again.rows());
+    }
+}
@@ -0,0 +1,97 @@
+package com.projectinventorymanagement.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several producers and consumers on a small queue: every element comes out
+ * exactly once, each producer's elements in the order it put them, and
+ * consumers end with null once the queue is closed and drained.
+ */
+class BoundedQueueTest {
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 4;
+    private static final int PER_PRODUCER = 20_000;
+
+    @Test
+    void manyProducersAndConsumersLoseAndDuplicateNothing() throws Exception {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(8); // <- Small, so producers wait for room
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int first = p * PER_PRODUCER;
+            producers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    assertTrue(queue.put(first + i));
+                }
+            }));
+        }
+        List<CompletableFuture<List<Integer>>> consumers = new ArrayList<>();
+        for (int c = 0; c < CONSUMERS; c++) {
+            CompletableFuture<List<Integer>> taken = new CompletableFuture<>();
+            Thread.ofPlatform().start(() -> {
+                List<Integer> elements = new ArrayList<>();
+                Integer element;
+                while ((element = queue.take()) != null) {
+                    elements.add(element);
+                }
+                taken.complete(elements);
+            });
+            consumers.add(taken);
+        }
+        for (Thread producer : producers) {
+            producer.join(30_000);
+        }
+        queue.close();
+
+        Set<Integer> seen = new HashSet<>();
+        for (CompletableFuture<List<Integer>> consumer : consumers) {
+            int[] last = new int[PRODUCERS];
+            Arrays.fill(last, -1);
+            for (int element : consumer.get(30, TimeUnit.SECONDS)) {
+                assertTrue(seen.add(element), "taken twice: " + element);
+                int producer = element / PER_PRODUCER;
+                assertTrue(element > last[producer], "out of order: " + element + " after " + last[producer]);
+                last[producer] = element;
+            }
+        }
+        assertEquals(PRODUCERS * PER_PRODUCER, seen.size());
+        assertEquals(0, queue.size());
+        assertTrue(queue.fullWaits() > 0);
+    }
+
+    @Test
+    void takeReturnsWhatIsLeftThenNullAfterClose() {
+        BoundedQueue<String> queue = new BoundedQueue<>(4);
+        assertTrue(queue.put("a"));
+        assertTrue(queue.put("b"));
+        queue.close();
+
+        assertEquals("a", queue.take());
+        assertEquals("b", queue.take());
+        assertNull(queue.take());
+    }
+
+    @Test
+    void closeWakesWaitingConsumersAndProducers() throws Exception {
+        BoundedQueue<String> empty = new BoundedQueue<>(2);
+        CompletableFuture<String> taken = CompletableFuture.supplyAsync(empty::take);
+        BoundedQueue<String> full = new BoundedQueue<>(2);
+        assertTrue(full.offer("a"));
+        assertTrue(full.offer("b"));
+        CompletableFuture<Boolean> put = CompletableFuture.supplyAsync(() -> full.put("c"));
+
+        empty.close();
+        full.close();
+        assertNull(taken.get(10, TimeUnit.SECONDS));
+        assertFalse(put.get(10, TimeUnit.SECONDS));
+    }
+}
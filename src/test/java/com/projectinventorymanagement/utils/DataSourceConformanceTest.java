@@ -0,0 +1,176 @@
+package com.projectinventorymanagement.utils;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks every backend registered with ServiceLoader against the contract
+ * DatabaseBase relies on. A new backend passes these before it is listed in
+ * META-INF/services.
+ */
+class DataSourceConformanceTest {
+    // Transaction-shaped rows, the one table every backend supports
+    private static final String TABLE = "transactions";
+
+    static Stream<DataSource> backends() {
+        return ServiceLoader.load(DataSource.class).stream().map(ServiceLoader.Provider::get);
+    }
+
+    @BeforeEach
+    void clearData() throws IOException {
+        TestData.reset();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void missingTableReadsEmpty(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        assertTrue(backend.readData(TABLE).isEmpty());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void roundTripsRowsInOrder(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        HashMap<Integer, ArrayList<String>> data = table(
+                header(),
+                row("1", "HC", "HP1", "Distribute", "10", "2024-03-01 09:15:00"),
+                row("2", "GG", "SP4", "Receive", "250", "2024-03-01 10:00:00"),
+                row("3", "HC", "HP2", "Distribute", "1", "2024-03-02 23:59:59"));
+        backend.writeData(TABLE, data);
+        assertEquals(rows(data), rows(backend.readData(TABLE)));
+    }
+
+    // Whatever a backend's format expects, it must not store a row other than as given
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void roundTripsUnexpectedRowsUnchanged(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        HashMap<Integer, ArrayList<String>> data = table(
+                header(),
+                row("1", "HC", "HP1", "Distribute", "10", "2024-03-01 09:15:00"),
+                row("T-2", "GG", "SP4", "Receive", "many", "yesterday"),
+                row("007", "HC", "HP2", "Distribute", "1"),
+                row("4", "HC", "HP2", "Distribute", "99999999999", "2024-03-02 23:59:59", "extra"));
+        backend.writeData(TABLE, data);
+        assertEquals(rows(data), rows(backend.readData(TABLE)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void roundTripsManyDistinctValues(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        HashMap<Integer, ArrayList<String>> data = table(header());
+        for (int i = 1; i <= 300; i++) {
+            data.put(i, row(String.valueOf(i), "I" + i, "H" + i, "Type " + i, String.valueOf(i),
+                    "2024-03-01 09:15:00"));
+        }
+        backend.writeData(TABLE, data);
+        assertEquals(rows(data), rows(backend.readData(TABLE)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void roundTripsHeaderOnly(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        HashMap<Integer, ArrayList<String>> data = table(header());
+        backend.writeData(TABLE, data);
+        assertEquals(rows(data), rows(backend.readData(TABLE)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void rewriteReplacesPreviousContents(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        backend.writeData(TABLE, table(header(),
+                row("1", "HC", "HP1", "Distribute", "10", "2024-03-01 09:15:00"),
+                row("2", "FS", "HP1", "Distribute", "20", "2024-03-01 09:16:00")));
+        HashMap<Integer, ArrayList<String>> shorter = table(header(),
+                row("2", "FS", "HP1", "Distribute", "20", "2024-03-01 09:16:00"));
+        backend.writeData(TABLE, shorter);
+        assertEquals(rows(shorter), rows(backend.readData(TABLE)));
+    }
+
+    // DatabaseBase leaves holes after deletes until the next checkpoint renumbers the rows
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void sparseIndexesComeBackDenseInIndexOrder(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        HashMap<Integer, ArrayList<String>> data = new HashMap<>();
+        data.put(0, header());
+        data.put(7, row("7", "MS", "HP3", "Distribute", "3", "2024-03-03 08:00:00"));
+        data.put(2, row("2", "GL", "HP3", "Distribute", "4", "2024-03-02 08:00:00"));
+        backend.writeData(TABLE, data);
+
+        HashMap<Integer, ArrayList<String>> read = backend.readData(TABLE);
+        assertEquals(List.of(0, 1, 2), new ArrayList<>(new TreeMap<>(read).keySet()));
+        assertEquals(List.of(header(), data.get(2), data.get(7)), rows(read));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void tailReadAgreesWithFullRead(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        backend.writeData(TABLE, table(header(),
+                row("1", "HC", "HP1", "Distribute", "10", "2024-03-01 09:15:00")));
+        TailState state = new TailState();
+        HashMap<Integer, ArrayList<String>> data = backend.readData(TABLE, state);
+        assertEquals(rows(backend.readData(TABLE)), rows(data));
+
+        HashMap<Integer, ArrayList<String>> grown = table(header(),
+                row("1", "HC", "HP1", "Distribute", "10", "2024-03-01 09:15:00"),
+                row("2", "SC", "HP2", "Distribute", "5", "2024-03-01 09:20:00"));
+        backend.writeData(TABLE, grown);
+        if (backend.readTail(TABLE, state, data)) { // <- Backends may always ask for a full read instead
+            assertEquals(rows(grown), rows(data));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    void isSelectableByName(DataSource backend) {
+        assumeTrue(backend.supports(TABLE));
+        String property = "inventory.datasource." + TABLE;
+        System.setProperty(property, backend.getName());
+        try {
+            assertEquals(backend.getClass(), DataSources.forTable(TABLE).getClass());
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+
+    private static ArrayList<String> header() {
+        return row("TransactionID", "Item Code", "Code", "Details", "Quantity", "Date-Time");
+    }
+
+    private static ArrayList<String> row(String... fields) {
+        return new ArrayList<>(Arrays.asList(fields));
+    }
+
+    @SafeVarargs
+    private static HashMap<Integer, ArrayList<String>> table(ArrayList<String>... rows) {
+        HashMap<Integer, ArrayList<String>> data = new HashMap<>();
+        for (ArrayList<String> row : rows) {
+            data.put(data.size(), row);
+        }
+        return data;
+    }
+
+    private static List<ArrayList<String>> rows(HashMap<Integer, ArrayList<String>> data) {
+        return new ArrayList<>(new TreeMap<>(data).values());
+    }
+}
@@ -0,0 +1,62 @@
+package com.projectinventorymanagement.utils;
+
+import com.projectinventorymanagement.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IDs are unique across threads and blocks, and the sequence file always
+ * points past every ID handed out.
+ */
+class IdAllocatorTest {
+
+    @BeforeEach
+    void clearData() throws IOException {
+        TestData.reset();
+    }
+
+    @Test
+    void concurrentCallersNeverGetTheSameId() throws Exception {
+        IdAllocator ids = IdAllocator.forName("concurrent");
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 5000; i++) { // <- Several blocks per thread
+                    assertTrue(seen.add(ids.next()));
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(40000, seen.size());
+
+        long stored = Long.parseLong(Files.readString(new File(TestData.DIRECTORY, "concurrent.seq").toPath(),
+                StandardCharsets.UTF_8).trim());
+        assertTrue(stored > seen.stream().mapToLong(Long::longValue).max().orElseThrow());
+    }
+
+    @Test
+    void idsIncreaseAndStartAboveTheOldRandomIds() {
+        IdAllocator ids = IdAllocator.forName("increasing");
+        long previous = ids.next();
+        assertTrue(previous > 1_000_000);
+        for (int i = 0; i < 3000; i++) {
+            long id = ids.next();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.projectinventorymanagement.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The future markDirty() returns is the writer's acknowledgement: it must not
+ * complete before the flush that covers the change.
+ */
+class WriteBehindFlusherTest {
+
+    // Records the flushes it receives
+    private static final class Table implements WriteBehindFlusher.Flushable {
+        final List<Boolean> flushes = new CopyOnWriteArrayList<>();
+        volatile RuntimeException failure;
+
+        @Override
+        public void flush(boolean fsync) {
+            if (failure != null) {
+                RuntimeException e = failure;
+                failure = null; // <- Fails once, the retry succeeds
+                throw e;
+            }
+            flushes.add(fsync);
+        }
+    }
+
+    @AfterEach
+    void restoreMode() {
+        WriteBehindFlusher.flushAll();
+        WriteBehindFlusher.setDurability(WriteBehindFlusher.Durability.GROUP_COMMIT);
+    }
+
+    @Test
+    void groupCommitAcknowledgesAfterTheFsync() throws Exception {
+        WriteBehindFlusher.setDurability(WriteBehindFlusher.Durability.GROUP_COMMIT);
+        Table first = new Table();
+        Table second = new Table();
+        CompletableFuture<Void> a = WriteBehindFlusher.markDirty(first);
+        CompletableFuture<Void> b = WriteBehindFlusher.markDirty(second);
+
+        a.get(5, TimeUnit.SECONDS);
+        b.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(true), first.flushes, "one fsync flush covers the change");
+        assertEquals(List.of(true), second.flushes);
+    }
+
+    @Test
+    void batchAcknowledgesOnceItsTablesAreFlushed() throws Exception {
+        WriteBehindFlusher.setDurability(WriteBehindFlusher.Durability.GROUP_COMMIT);
+        Table table = new Table();
+        CompletableFuture<Void> acknowledged = WriteBehindFlusher.batch(() -> {
+            WriteBehindFlusher.markDirty(table);
+            return WriteBehindFlusher.markDirty(table);
+        });
+        assertTrue(table.flushes.isEmpty(), "nothing is flushed while the batch runs");
+
+        acknowledged.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(true), table.flushes, "the batch is flushed once");
+    }
+
+    @Test
+    void syncPerOpFlushesBeforeReturning() {
+        WriteBehindFlusher.setDurability(WriteBehindFlusher.Durability.SYNC_PER_OP);
+        Table table = new Table();
+        assertTrue(WriteBehindFlusher.markDirty(table).isDone());
+        assertEquals(List.of(true), table.flushes);
+    }
+
+    @Test
+    void failedFlushFailsTheAcknowledgementAndIsRetried() throws Exception {
+        WriteBehindFlusher.setDurability(WriteBehindFlusher.Durability.GROUP_COMMIT);
+        Table table = new Table();
+        table.failure = new IllegalStateException("disk full");
+        CompletableFuture<Void> acknowledged = WriteBehindFlusher.markDirty(table);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> acknowledged.get(5, TimeUnit.SECONDS));
+        assertEquals("disk full", error.getCause().getMessage());
+        WriteBehindFlusher.whenFlushed().get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(true), table.flushes, "the table stays dirty and is flushed with the next group");
+    }
+}